@@ -0,0 +1,397 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Append-only binary journal of Treasure Hunt games, written through a
+ * memory-mapped file.
+ *
+ * Layout (little-endian):
+ * - header: int magic, int version, long committed length
+ * - START:    byte 1, int rows, int cols, int treasures, long seed
+ * - TREASURE: byte 2, int x, int y (one per treasure, right after START)
+ * - GUESS:    byte 3, int x, int y
+ * - END:      byte 4, byte won
+ *
+ * Every record is written to the mapping first, then the committed length in
+ * the header is moved past it, so a crash in the middle of a record leaves the
+ * journal at the previous record. The data lives in the page cache as soon as
+ * it is written, so it survives the JVM crashing; checkpoint() also forces it
+ * to disk, which survives the machine crashing.
+ *
+ * Reading maps the file in large windows and parses records in place, so a
+ * whole archive can be replayed at the speed of the disk.
+ *
+ * Reference: https://www.baeldung.com/java-mapped-byte-buffer
+ */
+public class GameJournal implements AutoCloseable {
+  private final FileChannel channel;
+  private final MappedByteBuffer header;
+  private MappedByteBuffer window;
+  private long windowStart;
+  private long committed;
+
+  // Constants: file format
+  private static final int MAGIC = 0x314a4854; // "THJ1"
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 16;
+  private static final int COMMITTED_OFFSET = 8;
+
+  private static final byte START = 1;
+  private static final byte TREASURE = 2;
+  private static final byte GUESS = 3;
+  private static final byte END = 4;
+
+  // Constants: largest record, and size of each mapped window
+  private static final int MAX_RECORD_SIZE = 21;
+  private static final long WINDOW_SIZE = 64L << 20;
+
+  /**
+   * Open a journal for appending, creating it if needed.
+   *
+   * @param path journal file
+   * @throws IOException if the file cannot be opened or is not a journal
+   */
+  public GameJournal(Path path) throws IOException {
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    boolean fresh = channel.size() < HEADER_SIZE;
+
+    header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+    header.order(ByteOrder.LITTLE_ENDIAN);
+
+    if (fresh) {
+      header.putInt(0, MAGIC).putInt(4, VERSION).putLong(COMMITTED_OFFSET, HEADER_SIZE);
+    } else {
+      checkHeader(header.getInt(0), header.getInt(4), path);
+    }
+
+    // Append after the last committed record, dropping any torn one
+    committed = header.getLong(COMMITTED_OFFSET);
+    mapWindow(committed);
+  }
+
+  /**
+   * Record the start of a game. Must be followed by one treasure() call per treasure.
+   *
+   * @param rows      number of rows of the board
+   * @param cols      number of columns of the board
+   * @param treasures number of treasures
+   * @param seed      seed used to hide the treasures (0 if unknown)
+   */
+  public void startGame(int rows, int cols, int treasures, long seed) {
+    ensureRoom();
+    window.put(START).putInt(rows).putInt(cols).putInt(treasures).putLong(seed);
+    commit();
+  }
+
+  // Record one treasure of the game just started
+  public void treasure(int x, int y) {
+    ensureRoom();
+    window.put(TREASURE).putInt(x).putInt(y);
+    commit();
+  }
+
+  // Record a unique, valid guess
+  public void guess(int x, int y) {
+    ensureRoom();
+    window.put(GUESS).putInt(x).putInt(y);
+    commit();
+  }
+
+  // Record the end of the current game
+  public void endGame(boolean won) {
+    ensureRoom();
+    window.put(END).put((byte) (won ? 1 : 0));
+    commit();
+  }
+
+  /**
+   * Force everything written so far to the disk.
+   */
+  public void checkpoint() {
+    window.force();
+    header.force();
+  }
+
+  /**
+   * Checkpoint and trim the file to its committed length.
+   */
+  @Override
+  public void close() throws IOException {
+    checkpoint();
+    try {
+      channel.truncate(committed);
+    } catch (IOException e) {
+      // Some platforms refuse to truncate a mapped file, the tail is ignored anyway
+    }
+    channel.close();
+  }
+
+  private void commit() {
+    committed = windowStart + window.position();
+    header.putLong(COMMITTED_OFFSET, committed);
+  }
+
+  // Move the window forward when the next record might not fit
+  private void ensureRoom() {
+    if (window.remaining() < MAX_RECORD_SIZE) {
+      mapWindow(windowStart + window.position());
+    }
+  }
+
+  private void mapWindow(long start) {
+    try {
+      window = channel.map(FileChannel.MapMode.READ_WRITE, start, WINDOW_SIZE);
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot map the journal", e);
+    }
+    window.order(ByteOrder.LITTLE_ENDIAN);
+    windowStart = start;
+  }
+
+  private static void checkHeader(int magic, int version, Path path) throws IOException {
+    if (magic != MAGIC) {
+      throw new IOException(path + " is not a Treasure Hunt journal");
+    }
+    if (version != VERSION) {
+      throw new IOException(path + " has unsupported journal version " + version);
+    }
+  }
+
+  /**
+   * Receives the records of a journal in order.
+   */
+  public interface Visitor {
+    void onStart(int rows, int cols, int treasures, long seed);
+
+    void onTreasure(int x, int y);
+
+    void onGuess(int x, int y);
+
+    void onEnd(boolean won);
+  }
+
+  /**
+   * Read every committed record of a journal.
+   *
+   * @param path    journal file
+   * @param visitor receives the records
+   * @return the number of bytes read
+   * @throws IOException if the file cannot be read or is not a journal
+   */
+  public static long replay(Path path, Visitor visitor) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_SIZE) {
+        return 0;
+      }
+
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+      header.order(ByteOrder.LITTLE_ENDIAN);
+      checkHeader(header.getInt(0), header.getInt(4), path);
+      long end = Math.min(header.getLong(COMMITTED_OFFSET), channel.size());
+
+      long position = HEADER_SIZE;
+      while (position < end) {
+        MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+            Math.min(WINDOW_SIZE, end - position));
+        window.order(ByteOrder.LITTLE_ENDIAN);
+
+        // Stop before a record that may cross into the next window
+        boolean last = position + window.limit() == end;
+        while (window.hasRemaining() && (last || window.remaining() >= MAX_RECORD_SIZE)) {
+          byte type = window.get();
+          switch (type) {
+            case START:
+              visitor.onStart(window.getInt(), window.getInt(), window.getInt(), window.getLong());
+              break;
+
+            case TREASURE:
+              visitor.onTreasure(window.getInt(), window.getInt());
+              break;
+
+            case GUESS:
+              visitor.onGuess(window.getInt(), window.getInt());
+              break;
+
+            case END:
+              visitor.onEnd(window.get() != 0);
+              break;
+
+            default:
+              throw new CorruptRecordException(position + window.position() - 1);
+          }
+        }
+        position += window.position();
+      }
+
+      return end;
+    }
+  }
+
+  /**
+   * Thrown by {@link #replay} when a record has an unknown type.
+   */
+  static class CorruptRecordException extends IOException {
+    CorruptRecordException(long offset) {
+      super("Corrupt journal record at offset " + offset);
+    }
+  }
+
+  /**
+   * A game read back from a journal.
+   */
+  public static class SavedGame {
+    public int rows;
+    public int cols;
+    public long seed;
+    public int[] treasureXs;
+    public int[] treasureYs;
+    public int[] guessXs = new int[16];
+    public int[] guessYs = new int[16];
+    public int guessCount;
+    private int treasureCount;
+
+    void addGuess(int x, int y) {
+      if (guessCount == guessXs.length) {
+        guessXs = Arrays.copyOf(guessXs, guessCount * 2);
+        guessYs = Arrays.copyOf(guessYs, guessCount * 2);
+      }
+      guessXs[guessCount] = x;
+      guessYs[guessCount] = y;
+      guessCount++;
+    }
+
+    boolean contains(int x, int y) {
+      return x >= 0 && x < rows && y >= 0 && y < cols;
+    }
+  }
+
+  /**
+   * Find the last game of a journal if it was never finished, e.g. because
+   * the session crashed.
+   *
+   * @param path journal file
+   * @return the unfinished game, or null if there is none or the journal
+   *         holds records that fit no game (torn or corrupt)
+   * @throws IOException if the file cannot be read or is not a journal
+   */
+  public static SavedGame findUnfinishedGame(Path path) throws IOException {
+    SavedGame[] last = new SavedGame[1];
+    boolean[] corrupt = new boolean[1];
+
+    Visitor visitor = new Visitor() {
+      public void onStart(int rows, int cols, int treasures, long seed) {
+        // Case: Impossible game - nothing to rebuild from it
+        if (rows <= 0 || cols <= 0 || treasures <= 0 || treasures > (long) rows * cols) {
+          corrupt[0] = true;
+          last[0] = null;
+          return;
+        }
+
+        SavedGame game = new SavedGame();
+        game.rows = rows;
+        game.cols = cols;
+        game.seed = seed;
+        game.treasureXs = new int[treasures];
+        game.treasureYs = new int[treasures];
+        last[0] = game;
+      }
+
+      public void onTreasure(int x, int y) {
+        SavedGame game = last[0];
+
+        // Case: Outside a game or the board, or more treasures than START declared
+        if (game == null || !game.contains(x, y) || game.treasureCount == game.treasureXs.length) {
+          corrupt[0] = true;
+          return;
+        }
+
+        game.treasureXs[game.treasureCount] = x;
+        game.treasureYs[game.treasureCount] = y;
+        game.treasureCount++;
+      }
+
+      public void onGuess(int x, int y) {
+        // Case: Outside a game or the board
+        if (last[0] == null || !last[0].contains(x, y)) {
+          corrupt[0] = true;
+          return;
+        }
+
+        last[0].addGuess(x, y);
+      }
+
+      public void onEnd(boolean won) {
+        last[0] = null;
+      }
+    };
+
+    try {
+      replay(path, visitor);
+    } catch (CorruptRecordException e) {
+      // Case: Unknown record type - stop like any other corruption
+      return null;
+    }
+
+    // A crash between START and the last TREASURE leaves nothing to resume
+    SavedGame game = last[0];
+    return !corrupt[0] && game != null && game.treasureCount == game.treasureXs.length ? game : null;
+  }
+
+  /**
+   * Entry point: replay journals and print analytics.
+   *
+   * @param args journal files
+   */
+  public static void main(String[] args) {
+    if (args.length == 0) {
+      System.out.println("Usage: java GameJournal <journal>...");
+      return;
+    }
+
+    // Counters: games, finished, won, guesses
+    long[] stats = new long[4];
+    Visitor visitor = new Visitor() {
+      public void onStart(int rows, int cols, int treasures, long seed) {
+        stats[0]++;
+      }
+
+      public void onTreasure(int x, int y) {
+        // Not needed for the statistics
+      }
+
+      public void onGuess(int x, int y) {
+        stats[3]++;
+      }
+
+      public void onEnd(boolean won) {
+        stats[1]++;
+        if (won) {
+          stats[2]++;
+        }
+      }
+    };
+
+    long bytes = 0;
+    long start = System.nanoTime();
+    try {
+      for (String file : args) {
+        bytes += replay(Path.of(file), visitor);
+      }
+    } catch (IOException e) {
+      System.out.println("Cannot replay: " + e.getMessage());
+      return;
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    System.out.printf("Games: %s (finished %s, won %s, unfinished %s)%n", stats[0], stats[1], stats[2],
+        stats[0] - stats[1]);
+    System.out.printf("Guesses: %s (%.2f per game)%n", stats[3], stats[0] == 0 ? 0.0 : (double) stats[3] / stats[0]);
+    System.out.printf("Replayed %.1f MB in %.3f s (%.0f MB/s, %.0f games/s)%n", bytes / 1e6, seconds,
+        bytes / 1e6 / seconds, stats[0] / seconds);
+  }
+}
@@ -0,0 +1,246 @@
+import java.io.PrintStream;
+
+/**
+ * Draws a Treasure Hunt board.
+ *
+ * Each frame is built in one reusable byte buffer and written with a single
+ * call, instead of one print call per cell.
+ * Boards larger than the viewport are shown through a window centred on the
+ * last guess.
+ * On ANSI terminals the board is pinned to the top of the screen (the text
+ * below scrolls on its own) and only the cells that changed are redrawn.
+ *
+ * Reference: https://en.wikipedia.org/wiki/ANSI_escape_code
+ */
+public class GridRenderer {
+  private final GridStore grid;
+  private final int rows;
+  private final int cols;
+  private final int viewRows;
+  private final int viewCols;
+  private final PrintStream out;
+  private final boolean ansi;
+
+  // Reusable frame buffer
+  private byte[] buffer;
+  private int length;
+
+  // ANSI mode: what is currently on screen
+  private final byte[] screen;
+  private int screenTop;
+  private int screenLeft;
+  private boolean hasFrame;
+
+  // Constants: largest window shown at once
+  public static final int MAX_VIEW_ROWS = 25;
+  public static final int MAX_VIEW_COLS = 40;
+
+  // Constants: grid symbols indexed by cell code (empty, guess, treasure)
+  private static final byte[] SYMBOLS = { '-', '+', '*', '?' };
+
+  private static final String ESC = "\033[";
+
+  /**
+   * Initializes a renderer for the given board.
+   *
+   * @param grid the cells to draw
+   * @param rows number of rows of the board
+   * @param cols number of columns of the board
+   * @param out  where to write frames
+   * @param ansi whether the terminal understands ANSI escape codes
+   */
+  public GridRenderer(GridStore grid, int rows, int cols, PrintStream out, boolean ansi) {
+    this.grid = grid;
+    this.rows = rows;
+    this.cols = cols;
+    this.viewRows = Math.min(rows, MAX_VIEW_ROWS);
+    this.viewCols = Math.min(cols, MAX_VIEW_COLS);
+    this.out = out;
+    this.ansi = ansi;
+    this.buffer = new byte[(viewRows + 1) * (viewCols * 2 + 1) + 128];
+    this.screen = new byte[viewRows * viewCols];
+  }
+
+  /**
+   * Detect if the standard output is an ANSI terminal.
+   * Can be forced with -Dtreasurehunt.ansi=true|false.
+   *
+   * @return whether ANSI escape codes can be used
+   */
+  public static boolean detectAnsi() {
+    String forced = System.getProperty("treasurehunt.ansi");
+    if (forced != null) {
+      return Boolean.parseBoolean(forced);
+    }
+
+    String term = System.getenv("TERM");
+    return System.console() != null && term != null && !term.equals("dumb");
+  }
+
+  /**
+   * Draw the board around a cell
+   *
+   * @param focusX row to centre the window on
+   * @param focusY column to centre the window on
+   */
+  public void render(int focusX, int focusY) {
+    int top = clamp(focusX - viewRows / 2, rows - viewRows);
+    int left = clamp(focusY - viewCols / 2, cols - viewCols);
+    length = 0;
+
+    if (ansi) {
+      renderAnsi(top, left);
+    } else {
+      renderPlain(top, left);
+    }
+
+    out.write(buffer, 0, length);
+    out.flush();
+  }
+
+  /**
+   * Release the top of the screen after the game ends (ANSI mode only).
+   */
+  public void finish() {
+    if (ansi && hasFrame) {
+      length = 0;
+      // Reset the scroll region and move below the board
+      append(ESC).append('r');
+      moveTo(viewRows + 2, 1);
+      out.write(buffer, 0, length);
+      out.flush();
+      hasFrame = false;
+    }
+  }
+
+  // Whole frame, same text as the original displayGrid()
+  private void renderPlain(int top, int left) {
+    if (isWindowed()) {
+      appendHeader(top, left).append('\n');
+    }
+
+    for (int i = top; i < top + viewRows; i++) {
+      for (int j = left; j < left + viewCols; j++) {
+        append(SYMBOLS[grid.get(i, j)]).append(' ');
+      }
+      append('\n');
+    }
+  }
+
+  // Board pinned to lines 2.. of the screen, header on line 1
+  private void renderAnsi(int top, int left) {
+    if (!hasFrame) {
+      // First frame: clear the screen, draw everything, then let the
+      // text below the board scroll independently
+      append(ESC).append("2J");
+      moveTo(1, 1);
+      appendHeader(top, left).append('\n');
+
+      for (int i = 0; i < viewRows; i++) {
+        for (int j = 0; j < viewCols; j++) {
+          byte code = grid.get(top + i, left + j);
+          screen[i * viewCols + j] = code;
+          append(SYMBOLS[code]).append(' ');
+        }
+        append('\n');
+      }
+
+      append(ESC).append(viewRows + 2).append(";r");
+      moveTo(viewRows + 2, 1);
+      hasFrame = true;
+    } else {
+      // Later frames: save the cursor, patch changed cells, restore the cursor
+      append("\0337");
+
+      if (top != screenTop || left != screenLeft) {
+        moveTo(1, 1);
+        append(ESC).append('K');
+        appendHeader(top, left);
+      }
+
+      for (int i = 0; i < viewRows; i++) {
+        for (int j = 0; j < viewCols; j++) {
+          byte code = grid.get(top + i, left + j);
+          if (screen[i * viewCols + j] != code) {
+            screen[i * viewCols + j] = code;
+            moveTo(i + 2, j * 2 + 1);
+            append(SYMBOLS[code]);
+          }
+        }
+      }
+
+      append("\0338");
+    }
+
+    screenTop = top;
+    screenLeft = left;
+  }
+
+  private boolean isWindowed() {
+    return viewRows < rows || viewCols < cols;
+  }
+
+  private GridRenderer appendHeader(int top, int left) {
+    return append("Rows ").append(top).append('-').append(top + viewRows - 1)
+        .append(", columns ").append(left).append('-').append(left + viewCols - 1)
+        .append(" of ").append(rows).append('x').append(cols);
+  }
+
+  private void moveTo(int line, int column) {
+    append(ESC).append(line).append(';').append(column).append('H');
+  }
+
+  // Keep the window inside the board
+  private static int clamp(int start, int max) {
+    return Math.max(0, Math.min(start, max));
+  }
+
+  // Buffer helpers, they only grow the buffer when a frame does not fit
+  private GridRenderer append(byte b) {
+    ensureCapacity(1);
+    buffer[length++] = b;
+    return this;
+  }
+
+  private GridRenderer append(char c) {
+    return append((byte) c);
+  }
+
+  private GridRenderer append(String s) {
+    ensureCapacity(s.length());
+    for (int i = 0; i < s.length(); i++) {
+      buffer[length++] = (byte) s.charAt(i);
+    }
+    return this;
+  }
+
+  private GridRenderer append(int value) {
+    if (value < 0) {
+      append('-');
+      value = -value;
+    }
+
+    ensureCapacity(10);
+    int start = length;
+    do {
+      buffer[length++] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value > 0);
+
+    // Digits were written backwards
+    for (int i = start, j = length - 1; i < j; i++, j--) {
+      byte tmp = buffer[i];
+      buffer[i] = buffer[j];
+      buffer[j] = tmp;
+    }
+    return this;
+  }
+
+  private void ensureCapacity(int extra) {
+    if (length + extra > buffer.length) {
+      byte[] bigger = new byte[Math.max(buffer.length * 2, length + extra)];
+      System.arraycopy(buffer, 0, bigger, 0, length);
+      buffer = bigger;
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/**
+ * Storage backend for the cells of a Treasure Hunt board.
+ *
+ * Cells are stored as small codes instead of String references, and the
+ * backend is picked from the board size:
+ * - PackedGridStore keeps 2 bits per cell for boards that fit comfortably in memory
+ * - SparseGridStore only records marked cells, for huge boards
+ */
+public interface GridStore {
+  // Constants: cell codes
+  byte EMPTY = 0;
+  byte GUESS = 1;
+  byte TREASURE = 2;
+
+  // Boards up to this many cells use the packed backend (4 MiB at 2 bits per cell)
+  long PACKED_CELL_LIMIT = 1L << 24;
+
+  /**
+   * Returns the code stored at the given cell.
+   *
+   * @param x row of the cell
+   * @param y column of the cell
+   * @return EMPTY, GUESS or TREASURE
+   */
+  byte get(int x, int y);
+
+  /**
+   * Stores a code at the given cell.
+   *
+   * @param x    row of the cell
+   * @param y    column of the cell
+   * @param code EMPTY, GUESS or TREASURE
+   */
+  void set(int x, int y, byte code);
+
+  /**
+   * Picks a backend for a board of the given dimensions.
+   *
+   * @param rows number of rows of the board
+   * @param cols number of columns of the board
+   * @return a packed store for small boards, a sparse store otherwise
+   */
+  static GridStore create(int rows, int cols) {
+    if ((long) rows * cols <= PACKED_CELL_LIMIT) {
+      return new PackedGridStore(rows, cols);
+    }
+    return sparse(cols);
+  }
+
+  /**
+   * Creates a sparse backend regardless of the board size.
+   *
+   * @param cols number of columns of the board
+   * @return a store that only records marked cells
+   */
+  static GridStore sparse(int cols) {
+    return new SparseGridStore(cols);
+  }
+}
+
+/**
+ * Dense backend: 2 bits per cell, 32 cells per long.
+ */
+class PackedGridStore implements GridStore {
+  private final int cols;
+  private final long[] words;
+
+  public PackedGridStore(int rows, int cols) {
+    this.cols = cols;
+    // All bits start at zero, which is the EMPTY code
+    this.words = new long[(int) (((long) rows * cols + 31) >>> 5)];
+  }
+
+  public byte get(int x, int y) {
+    long index = (long) x * cols + y;
+    int shift = (int) (index & 31) << 1;
+    return (byte) ((words[(int) (index >>> 5)] >>> shift) & 3);
+  }
+
+  public void set(int x, int y, byte code) {
+    long index = (long) x * cols + y;
+    int word = (int) (index >>> 5);
+    int shift = (int) (index & 31) << 1;
+    words[word] = (words[word] & ~(3L << shift)) | ((long) (code & 3) << shift);
+  }
+}
+
+/**
+ * Sparse backend: an open-addressing hash table that only holds marked cells.
+ * Unmarked cells read as EMPTY, so memory follows the number of guesses.
+ */
+class SparseGridStore implements GridStore {
+  private final int cols;
+  // Keys are stored as cell index + 1 so that 0 means an unused slot
+  private long[] keys;
+  private byte[] codes;
+  private int size;
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  public SparseGridStore(int cols) {
+    this.cols = cols;
+    this.keys = new long[INITIAL_CAPACITY];
+    this.codes = new byte[INITIAL_CAPACITY];
+  }
+
+  public byte get(int x, int y) {
+    long key = (long) x * cols + y + 1;
+    int mask = keys.length - 1;
+    for (int slot = hash(key) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+      if (keys[slot] == key) {
+        return codes[slot];
+      }
+    }
+    return EMPTY;
+  }
+
+  public void set(int x, int y, byte code) {
+    long key = (long) x * cols + y + 1;
+    int mask = keys.length - 1;
+    int slot = hash(key) & mask;
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) {
+        codes[slot] = code;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    // Writing EMPTY to an unmarked cell changes nothing
+    if (code == EMPTY) {
+      return;
+    }
+
+    keys[slot] = key;
+    codes[slot] = code;
+    size++;
+
+    // Keep the load factor under 1/2
+    if (size * 2 > keys.length) {
+      grow();
+    }
+  }
+
+  // Double the table and re-insert every marked cell
+  private void grow() {
+    long[] oldKeys = keys;
+    byte[] oldCodes = codes;
+    keys = new long[oldKeys.length * 2];
+    codes = new byte[oldKeys.length * 2];
+    int mask = keys.length - 1;
+
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        int slot = hash(oldKeys[i]) & mask;
+        while (keys[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        codes[slot] = oldCodes[i];
+      }
+    }
+  }
+
+  // Spread the bits of the key (from MurmurHash3's finalizer)
+  private static int hash(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+}
@@ -0,0 +1,161 @@
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads "<row> <column>" lines straight from a byte stream.
+ *
+ * Replaces scanner.nextLine().trim().split(" ") and two Integer.parseInt calls:
+ * the numbers are parsed byte by byte from one reusable buffer, so reading a
+ * guess allocates nothing. This matters when recorded sessions with millions
+ * of guesses are piped through stdin.
+ *
+ * A line is accepted with the same rules as before: surrounding blanks are
+ * ignored, and the two integers must be separated by exactly one space.
+ */
+public class GuessReader {
+  private final InputStream in;
+  private final byte[] buffer;
+  private int position;
+  private int limit;
+
+  // Result of the last call to next()
+  private int x;
+  private int y;
+
+  // Scratch values of parseNumber()
+  private int number;
+  private boolean numberValid;
+
+  // Constants: results of next()
+  public static final int OK = 0;
+  public static final int INVALID = 1;
+  public static final int EOF = 2;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * Initializes a reader on the given stream.
+   *
+   * @param in where the guesses come from, usually System.in
+   */
+  public GuessReader(InputStream in) {
+    this.in = in;
+    this.buffer = new byte[BUFFER_SIZE];
+  }
+
+  /**
+   * Read the next line
+   *
+   * @return OK if the line holds two integers (see getX() and getY()),
+   *         INVALID if it does not, EOF if there is no more input
+   */
+  public int next() {
+    int b = read();
+    if (b < 0) {
+      return EOF;
+    }
+
+    // Trim the start of the line
+    b = skipBlanks(b);
+
+    // First number, then exactly one space
+    b = parseNumber(b);
+    boolean valid = numberValid && b == ' ';
+    x = number;
+
+    // Second number
+    if (valid) {
+      b = parseNumber(read());
+      valid = numberValid;
+      y = number;
+    }
+
+    // Trim the end of the line, anything else makes it invalid
+    b = skipBlanks(b);
+    if (b >= 0 && b != '\n') {
+      valid = false;
+    }
+
+    // Skip the rest of the line
+    while (b >= 0 && b != '\n') {
+      b = read();
+    }
+
+    return valid ? OK : INVALID;
+  }
+
+  /**
+   * Returns the row of the last line read.
+   *
+   * @return The row.
+   */
+  public int getX() {
+    return x;
+  }
+
+  /**
+   * Returns the column of the last line read.
+   *
+   * @return The column.
+   */
+  public int getY() {
+    return y;
+  }
+
+  // Blanks are what String.trim() removes, except the end of the line
+  private int skipBlanks(int b) {
+    while (b >= 0 && b != '\n' && b <= ' ') {
+      b = read();
+    }
+    return b;
+  }
+
+  /**
+   * Parse an optionally signed int starting at b, like Integer.parseInt.
+   * Sets number and numberValid, and returns the first byte after the digits.
+   */
+  private int parseNumber(int b) {
+    boolean negative = b == '-';
+    if (b == '-' || b == '+') {
+      b = read();
+    }
+
+    long value = 0;
+    int digits = 0;
+    boolean overflow = false;
+
+    while (b >= '0' && b <= '9') {
+      value = value * 10 + (b - '0');
+      // Keep reading the digits, but remember the value no longer fits
+      if (value > (long) Integer.MAX_VALUE + 1) {
+        overflow = true;
+        value = 0;
+      }
+      digits++;
+      b = read();
+    }
+
+    value = negative ? -value : value;
+    numberValid = digits > 0 && !overflow && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+    number = (int) value;
+    return b;
+  }
+
+  // Next byte of the stream, or -1 at the end
+  private int read() {
+    if (position == limit) {
+      try {
+        limit = in.read(buffer, 0, buffer.length);
+      } catch (IOException e) {
+        limit = -1;
+      }
+
+      position = 0;
+      if (limit <= 0) {
+        limit = 0;
+        return -1;
+      }
+    }
+    return buffer[position++] & 0xff;
+  }
+}
@@ -0,0 +1,142 @@
+import java.util.SplittableRandom;
+
+/**
+ * An automated player for headless Treasure Hunt games.
+ *
+ * Guesses are packed into a long (row in the high 32 bits, column in the low
+ * 32 bits) so that no Point is allocated per turn.
+ * A strategy object is used by one thread only and is reused across games.
+ */
+public interface GuessStrategy {
+  /**
+   * Prepare for a new game.
+   *
+   * @param rows   number of rows of the board
+   * @param cols   number of columns of the board
+   * @param random generator owned by the calling worker
+   */
+  void newGame(int rows, int cols, SplittableRandom random);
+
+  /**
+   * Choose the next cell to guess.
+   *
+   * @return the packed guess, see pack()
+   */
+  long nextGuess();
+
+  /**
+   * Learn the answer to the last guess.
+   *
+   * @param x        row of the guess
+   * @param y        column of the guess
+   * @param distance Manhattan distance to the treasure
+   */
+  void onResult(int x, int y, int distance);
+
+  static long pack(int x, int y) {
+    return ((long) x << 32) | (y & 0xffffffffL);
+  }
+
+  static int unpackX(long guess) {
+    return (int) (guess >> 32);
+  }
+
+  static int unpackY(long guess) {
+    return (int) guess;
+  }
+
+  /**
+   * Look up a strategy by name.
+   *
+   * @param name "random", "sweep" or "solver"
+   * @return a new strategy instance
+   * @throws IllegalArgumentException if the name is unknown
+   */
+  static GuessStrategy byName(String name) {
+    switch (name) {
+      case "random":
+        return new RandomGuessStrategy();
+
+      case "sweep":
+        return new SweepGuessStrategy();
+
+      case "solver":
+        return new SolverGuessStrategy();
+
+      default:
+        throw new IllegalArgumentException("Unknown strategy: " + name);
+    }
+  }
+}
+
+/**
+ * Guesses uniformly random cells, ignoring the distance answers.
+ * The game rejects repeats, so the simulator simply asks again.
+ */
+class RandomGuessStrategy implements GuessStrategy {
+  private int rows;
+  private int cols;
+  private SplittableRandom random;
+
+  public void newGame(int rows, int cols, SplittableRandom random) {
+    this.rows = rows;
+    this.cols = cols;
+    this.random = random;
+  }
+
+  public long nextGuess() {
+    return GuessStrategy.pack(random.nextInt(rows), random.nextInt(cols));
+  }
+
+  public void onResult(int x, int y, int distance) {
+    // Nothing to learn
+  }
+}
+
+/**
+ * Guesses the board in row-major order, a baseline for comparison.
+ */
+class SweepGuessStrategy implements GuessStrategy {
+  private int cols;
+  private long next;
+
+  public void newGame(int rows, int cols, SplittableRandom random) {
+    this.cols = cols;
+    this.next = 0;
+  }
+
+  public long nextGuess() {
+    long cell = next++;
+    return GuessStrategy.pack((int) (cell / cols), (int) (cell % cols));
+  }
+
+  public void onResult(int x, int y, int distance) {
+    // Nothing to learn
+  }
+}
+
+/**
+ * Plays with the ManhattanSolver's suggestions.
+ */
+class SolverGuessStrategy implements GuessStrategy {
+  private ManhattanSolver solver;
+  private int rows;
+  private int cols;
+
+  public void newGame(int rows, int cols, SplittableRandom random) {
+    if (solver == null || this.rows != rows || this.cols != cols) {
+      solver = new ManhattanSolver(rows, cols);
+      this.rows = rows;
+      this.cols = cols;
+    }
+    solver.reset();
+  }
+
+  public long nextGuess() {
+    return solver.suggest();
+  }
+
+  public void onResult(int x, int y, int distance) {
+    solver.addAnswer(x, y, distance);
+  }
+}
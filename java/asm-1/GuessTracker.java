@@ -0,0 +1,158 @@
+import java.util.Arrays;
+
+/**
+ * Keeps track of the guesses made on a rows x cols board.
+ *
+ * Membership is answered by a bitset indexed by x * cols + y, so checking for a
+ * repeated guess costs O(1) instead of scanning the whole guess list.
+ * The bitset is split into pages that are only allocated when a guess lands
+ * in them, so memory follows the number of guesses rather than the board area.
+ * Boards too large even for the page table fall back to a hash set of the
+ * guessed cells.
+ *
+ * Reference: https://www.baeldung.com/java-bitset
+ */
+public class GuessTracker {
+  private final int cols;
+  private final long[][] pages;
+  private GridStore sparse;
+  private long[] history;
+  private int size;
+
+  // Constants: 2^16 bits (8 KiB) per page
+  private static final int PAGE_SHIFT = 16;
+  private static final int WORDS_PER_PAGE = (1 << PAGE_SHIFT) / Long.SIZE;
+  private static final int INITIAL_HISTORY_CAPACITY = 16;
+  // Constants: 2^18 pages cover 2^34 cells with a 2 MiB page table at most
+  private static final long MAX_PAGES = 1L << 18;
+
+  /**
+   * Initializes an empty tracker for a board of the given dimensions.
+   *
+   * @param rows number of rows of the board
+   * @param cols number of columns of the board
+   */
+  public GuessTracker(int rows, int cols) {
+    long cells = (long) rows * cols;
+    this.cols = cols;
+    long pageCount = (cells + (1L << PAGE_SHIFT) - 1) >>> PAGE_SHIFT;
+    this.pages = pageCount <= MAX_PAGES ? new long[(int) pageCount][] : null;
+    this.sparse = pages == null ? GridStore.sparse(cols) : null;
+    this.history = new long[INITIAL_HISTORY_CAPACITY];
+    this.size = 0;
+  }
+
+  /**
+   * Check if a cell has already been guessed
+   *
+   * @param x row of the cell
+   * @param y column of the cell
+   * @return whether the cell was guessed before
+   */
+  public boolean contains(int x, int y) {
+    if (sparse != null) {
+      return sparse.get(x, y) != GridStore.EMPTY;
+    }
+
+    long index = indexOf(x, y);
+    long[] page = pages[(int) (index >>> PAGE_SHIFT)];
+    if (page == null) {
+      return false;
+    }
+
+    int bit = (int) (index & ((1 << PAGE_SHIFT) - 1));
+    return (page[bit >>> 6] & (1L << bit)) != 0;
+  }
+
+  /**
+   * Record a guess
+   *
+   * @param x row of the cell
+   * @param y column of the cell
+   * @return true if the guess is new, false if it was a repeated guess
+   */
+  public boolean add(int x, int y) {
+    long index = indexOf(x, y);
+
+    if (sparse != null) {
+      if (sparse.get(x, y) != GridStore.EMPTY) {
+        return false;
+      }
+      sparse.set(x, y, GridStore.GUESS);
+    } else {
+      int pageIndex = (int) (index >>> PAGE_SHIFT);
+      long[] page = pages[pageIndex];
+      if (page == null) {
+        page = new long[WORDS_PER_PAGE];
+        pages[pageIndex] = page;
+      }
+
+      int bit = (int) (index & ((1 << PAGE_SHIFT) - 1));
+      long mask = 1L << bit;
+      if ((page[bit >>> 6] & mask) != 0) {
+        return false;
+      }
+      page[bit >>> 6] |= mask;
+    }
+
+    // Keep the guesses in order for reporting
+    if (size == history.length) {
+      history = Arrays.copyOf(history, size * 2);
+    }
+    history[size++] = index;
+    return true;
+  }
+
+  /**
+   * Forget all guesses so the tracker can be reused for another game.
+   * Only the bits that were set are cleared, so this costs O(guesses).
+   */
+  public void clear() {
+    if (sparse != null) {
+      sparse = GridStore.sparse(cols);
+      size = 0;
+      return;
+    }
+
+    for (int i = 0; i < size; i++) {
+      long index = history[i];
+      int bit = (int) (index & ((1 << PAGE_SHIFT) - 1));
+      pages[(int) (index >>> PAGE_SHIFT)][bit >>> 6] &= ~(1L << bit);
+    }
+    size = 0;
+  }
+
+  /**
+   * Returns the number of unique guesses made so far.
+   *
+   * @return The number of guesses.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the row of the i-th guess (in the order it was made).
+   *
+   * @param i index of the guess
+   * @return The row of the guess.
+   */
+  public int getX(int i) {
+    return (int) (history[i] / cols);
+  }
+
+  /**
+   * Returns the column of the i-th guess (in the order it was made).
+   *
+   * @param i index of the guess
+   * @return The column of the guess.
+   */
+  public int getY(int i) {
+    return (int) (history[i] % cols);
+  }
+
+  // Flatten a cell into its bit index
+  private long indexOf(int x, int y) {
+    return (long) x * cols + y;
+  }
+}
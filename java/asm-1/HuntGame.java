@@ -0,0 +1,126 @@
+/**
+ * The rules of one Treasure Hunt game without any input or output,
+ * so it can be driven by a program instead of a Scanner.
+ *
+ * A game object can be reset and reused, which keeps batch runs free of
+ * per-game allocation.
+ */
+public class HuntGame {
+  private final int rows;
+  private final int cols;
+  private final int maxGuesses;
+  private final GuessTracker guesses;
+  private int treasureX;
+  private int treasureY;
+  private boolean won;
+
+  // Constants: results of guess() that are not distances
+  public static final int INVALID = -1;
+  public static final int REPEATED = -2;
+
+  /**
+   * Initializes a game on a rows x cols board with the treasure at (0, 0).
+   * Call reset() to hide the treasure somewhere else.
+   *
+   * @param rows number of rows of the board
+   * @param cols number of columns of the board
+   */
+  public HuntGame(int rows, int cols) {
+    this.rows = rows;
+    this.cols = cols;
+    // At least one guess, like the interactive game that wins a 1x1 board on the first guess
+    this.maxGuesses = (int) Math.max(1, Math.min(((long) rows * cols) / 2, Integer.MAX_VALUE));
+    this.guesses = new GuessTracker(rows, cols);
+  }
+
+  /**
+   * Start a new game with the treasure at the given cell
+   *
+   * @param treasureX row of the treasure
+   * @param treasureY column of the treasure
+   */
+  public void reset(int treasureX, int treasureY) {
+    this.treasureX = treasureX;
+    this.treasureY = treasureY;
+    this.won = false;
+    guesses.clear();
+  }
+
+  /**
+   * Make a guess
+   *
+   * @param x row of the guess
+   * @param y column of the guess
+   * @return Manhattan distance to the treasure, or INVALID / REPEATED
+   */
+  public int guess(int x, int y) {
+    if (x < 0 || y < 0 || x >= rows || y >= cols) {
+      return INVALID;
+    }
+
+    if (!guesses.add(x, y)) {
+      return REPEATED;
+    }
+
+    int distance = Math.abs(x - treasureX) + Math.abs(y - treasureY);
+    won = distance == 0;
+    return distance;
+  }
+
+  /**
+   * Returns whether the game has ended, either found or out of guesses.
+   *
+   * @return whether the game is over
+   */
+  public boolean isOver() {
+    return won || guesses.size() >= maxGuesses;
+  }
+
+  /**
+   * Returns whether the treasure was found.
+   *
+   * @return whether the game was won
+   */
+  public boolean isWon() {
+    return won;
+  }
+
+  /**
+   * Returns the number of unique guesses made so far.
+   *
+   * @return The number of guesses.
+   */
+  public int getGuessCount() {
+    return guesses.size();
+  }
+
+  /**
+   * Returns the guesses made so far, in order.
+   *
+   * @return The guess tracker.
+   */
+  public GuessTracker getGuesses() {
+    return guesses;
+  }
+
+  // Getters
+  public int getRows() {
+    return rows;
+  }
+
+  public int getCols() {
+    return cols;
+  }
+
+  public int getMaxGuesses() {
+    return maxGuesses;
+  }
+
+  public int getTreasureX() {
+    return treasureX;
+  }
+
+  public int getTreasureY() {
+    return treasureY;
+  }
+}
@@ -0,0 +1,349 @@
+import java.util.Arrays;
+
+/**
+ * Keeps the set of cells that can still hold the treasure.
+ *
+ * In the rotated coordinates u = x + y and v = x - y, the cells at Manhattan
+ * distance d from a guess form the border of an axis-aligned square:
+ * max(|u - u0|, |v - v0|) = d. The candidates are therefore a union of
+ * a few axis-aligned segments in (u, v) space (diagonals on the board), and
+ * every new answer only intersects those segments with the 4 sides of one
+ * more square. Nothing is ever listed cell by cell, so boards with billions
+ * of cells cost the same as small ones.
+ *
+ * Reference: https://en.wikipedia.org/wiki/Taxicab_geometry
+ */
+public class ManhattanSolver {
+  private final int rows;
+  private final int cols;
+
+  // Segments: when fixedU[i] is true the segment is u = fixed[i], v in [lo[i], hi[i]],
+  // otherwise it is v = fixed[i], u in [lo[i], hi[i]]. Ranges hold only lattice
+  // cells, i.e. lo and hi have the same parity as fixed.
+  private boolean[] fixedU = new boolean[MAX_SEGMENTS];
+  private long[] fixed = new long[MAX_SEGMENTS];
+  private long[] lo = new long[MAX_SEGMENTS];
+  private long[] hi = new long[MAX_SEGMENTS];
+  private int segments;
+
+  // Second set of arrays, swapped with the first one on every update
+  private boolean[] nextFixedU = new boolean[MAX_SEGMENTS];
+  private long[] nextFixed = new long[MAX_SEGMENTS];
+  private long[] nextLo = new long[MAX_SEGMENTS];
+  private long[] nextHi = new long[MAX_SEGMENTS];
+
+  // Sides of the square of the answer being applied
+  private final boolean[] sideFixedU = new boolean[4];
+  private final long[] sideFixed = new long[4];
+  private final long[] sideLo = new long[4];
+  private final long[] sideHi = new long[4];
+
+  // Before the first answer every cell is a candidate
+  private boolean constrained;
+
+  // Guesses made so far, packed with GuessStrategy.pack()
+  private long[] guesses = new long[8];
+  private int guessCount;
+
+  private static final int MAX_SEGMENTS = 64;
+
+  /**
+   * Initializes a solver for a rows x cols board.
+   *
+   * @param rows number of rows of the board
+   * @param cols number of columns of the board
+   */
+  public ManhattanSolver(int rows, int cols) {
+    this.rows = rows;
+    this.cols = cols;
+  }
+
+  /**
+   * Forget all answers so the solver can be reused for another game.
+   */
+  public void reset() {
+    constrained = false;
+    segments = 0;
+    guessCount = 0;
+  }
+
+  /**
+   * Narrow the candidates with one answer. O(1): the candidates are a bounded
+   * number of segments and the new answer adds 4 sides.
+   *
+   * @param x        row of the guess
+   * @param y        column of the guess
+   * @param distance Manhattan distance reported for the guess
+   */
+  public void addAnswer(int x, int y, int distance) {
+    if (guessCount == guesses.length) {
+      guesses = Arrays.copyOf(guesses, guessCount * 2);
+    }
+    guesses[guessCount++] = GuessStrategy.pack(x, y);
+
+    long u = (long) x + y;
+    long v = (long) x - y;
+    long d = distance;
+
+    // Case: Found the treasure - only the guess itself is left
+    if (d == 0) {
+      segments = 0;
+      addSegment(true, u, v, v);
+      constrained = true;
+      return;
+    }
+
+    // The 4 sides of the square, without sharing corners
+    setSide(0, false, v + d, u - d, u + d);
+    setSide(1, false, v - d, u - d, u + d);
+    setSide(2, true, u - d, v - d + 1, v + d - 1);
+    setSide(3, true, u + d, v - d + 1, v + d - 1);
+
+    // Case: First answer - the candidates are the sides of the square
+    if (!constrained) {
+      segments = 0;
+      for (int s = 0; s < 4; s++) {
+        addSegment(sideFixedU[s], sideFixed[s], sideLo[s], sideHi[s]);
+      }
+      constrained = true;
+      return;
+    }
+
+    // Case: Later answers - intersect every segment with every side
+    int count = 0;
+    for (int i = 0; i < segments; i++) {
+      for (int s = 0; s < 4; s++) {
+        count = intersect(i, s, count);
+      }
+    }
+
+    swap();
+    segments = count;
+  }
+
+  /**
+   * Returns the number of cells that are still consistent with every answer.
+   *
+   * @return The number of candidates.
+   */
+  public long count() {
+    if (!constrained) {
+      return (long) rows * cols;
+    }
+
+    long total = 0;
+    for (int i = 0; i < segments; i++) {
+      total += (hi[i] - lo[i]) / 2 + 1;
+    }
+    return total;
+  }
+
+  /**
+   * Suggest the next guess: the cell whose answer splits the candidates into
+   * the smallest worst-case group. Probes are the board corners and the ends
+   * of every segment; candidates win ties since they may hit the treasure.
+   *
+   * @return the packed guess, see GuessStrategy.pack()
+   */
+  public long suggest() {
+    // Case: Nothing known yet - a corner turns the first answer into one diagonal
+    if (!constrained) {
+      return GuessStrategy.pack(0, 0);
+    }
+
+    // Case: Few candidates left - just try one
+    if (count() <= 2 && segments > 0) {
+      return toCell(fixedU[0], fixed[0], lo[0]);
+    }
+
+    long best = -1;
+    long bestScore = Long.MAX_VALUE;
+
+    for (int i = 0; i < segments; i++) {
+      for (int end = 0; end < 2; end++) {
+        long probe = toCell(fixedU[i], fixed[i], end == 0 ? lo[i] : hi[i]);
+        // Strictly better only, so earlier candidates keep the tie
+        long score = score(probe);
+        if (score < bestScore) {
+          best = probe;
+          bestScore = score;
+        }
+      }
+    }
+
+    long[] corners = {
+        GuessStrategy.pack(0, 0), GuessStrategy.pack(0, cols - 1),
+        GuessStrategy.pack(rows - 1, 0), GuessStrategy.pack(rows - 1, cols - 1)
+    };
+    for (long probe : corners) {
+      if (!isGuessed(probe)) {
+        long score = score(probe);
+        if (score < bestScore) {
+          best = probe;
+          bestScore = score;
+        }
+      }
+    }
+
+    return best;
+  }
+
+  /**
+   * Worst-case number of candidates that would share one answer to a probe.
+   * On a segment, the cells within the probe's "shadow" all get the same
+   * distance (a plateau), the others get at most one cell per distance on
+   * each side. Plateaus with the same distance add up.
+   */
+  private long score(long probe) {
+    int x = GuessStrategy.unpackX(probe);
+    int y = GuessStrategy.unpackY(probe);
+    long pu = (long) x + y;
+    long pv = (long) x - y;
+
+    long sides = 0;
+    long worstPlateau = 0;
+
+    for (int i = 0; i < segments; i++) {
+      long across = fixedU[i] ? pu : pv;
+      long along = fixedU[i] ? pv : pu;
+      long a = Math.abs(fixed[i] - across);
+
+      long plateau = countBetween(fixed[i], Math.max(lo[i], along - a), Math.min(hi[i], along + a));
+      if (lo[i] < along - a) {
+        sides++;
+      }
+      if (hi[i] > along + a) {
+        sides++;
+      }
+
+      // Add up the plateaus of every segment at the same distance
+      if (plateau > 0) {
+        long group = 0;
+        for (int j = 0; j < segments; j++) {
+          long aj = Math.abs(fixed[j] - (fixedU[j] ? pu : pv));
+          if (aj == a) {
+            long alongJ = fixedU[j] ? pv : pu;
+            group += countBetween(fixed[j], Math.max(lo[j], alongJ - a), Math.min(hi[j], alongJ + a));
+          }
+        }
+        worstPlateau = Math.max(worstPlateau, group);
+      }
+    }
+
+    return worstPlateau + sides;
+  }
+
+  private boolean isGuessed(long cell) {
+    for (int i = 0; i < guessCount; i++) {
+      if (guesses[i] == cell) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Intersect segment i with side s and append the result to the next arrays
+  private int intersect(int i, int s, int count) {
+    if (fixedU[i] == sideFixedU[s]) {
+      // Parallel: overlap only on the same line
+      if (fixed[i] != sideFixed[s]) {
+        return count;
+      }
+      long from = Math.max(lo[i], sideLo[s]);
+      long to = Math.min(hi[i], sideHi[s]);
+      return from <= to ? putNext(count, fixedU[i], fixed[i], from, to) : count;
+    }
+
+    // Perpendicular: at most one crossing cell
+    if (sideFixed[s] < lo[i] || sideFixed[s] > hi[i] || fixed[i] < sideLo[s] || fixed[i] > sideHi[s]) {
+      return count;
+    }
+    if (((fixed[i] ^ sideFixed[s]) & 1) != 0) {
+      return count;
+    }
+    return putNext(count, fixedU[i], fixed[i], sideFixed[s], sideFixed[s]);
+  }
+
+  private int putNext(int count, boolean isU, long value, long from, long to) {
+    if (count == MAX_SEGMENTS) {
+      throw new IllegalStateException("Too many candidate segments");
+    }
+    nextFixedU[count] = isU;
+    nextFixed[count] = value;
+    nextLo[count] = from;
+    nextHi[count] = to;
+    return count + 1;
+  }
+
+  private void swap() {
+    boolean[] b = fixedU;
+    fixedU = nextFixedU;
+    nextFixedU = b;
+
+    long[] t = fixed;
+    fixed = nextFixed;
+    nextFixed = t;
+
+    t = lo;
+    lo = nextLo;
+    nextLo = t;
+
+    t = hi;
+    hi = nextHi;
+    nextHi = t;
+  }
+
+  // Store a side clipped to the board (an empty side gets lo > hi)
+  private void setSide(int s, boolean isU, long value, long from, long to) {
+    sideFixedU[s] = isU;
+    sideFixed[s] = value;
+    sideLo[s] = clipLo(isU, value, from);
+    sideHi[s] = clipHi(isU, value, to);
+  }
+
+  // Add a segment clipped to the board, dropping it if it is empty
+  private void addSegment(boolean isU, long value, long from, long to) {
+    from = clipLo(isU, value, from);
+    to = clipHi(isU, value, to);
+    if (from <= to) {
+      fixedU[segments] = isU;
+      fixed[segments] = value;
+      lo[segments] = from;
+      hi[segments] = to;
+      segments++;
+    }
+  }
+
+  /*
+   * Board limits along a line. With x = (u + v) / 2 and y = (u - v) / 2:
+   * - on u = c: v in [-c, 2(rows - 1) - c] and [c - 2(cols - 1), c]
+   * - on v = c: u in [-c, 2(rows - 1) - c] and [c, c + 2(cols - 1)]
+   * Then round inwards to the parity of c.
+   */
+  private long clipLo(boolean isU, long c, long from) {
+    long min = isU ? Math.max(-c, c - 2L * (cols - 1)) : Math.max(-c, c);
+    from = Math.max(from, min);
+    return from + ((from - c) & 1);
+  }
+
+  private long clipHi(boolean isU, long c, long to) {
+    long max = isU ? Math.min(2L * (rows - 1) - c, c) : Math.min(2L * (rows - 1) - c, c + 2L * (cols - 1));
+    to = Math.min(to, max);
+    return to - ((to - c) & 1);
+  }
+
+  // Number of lattice cells in [from, to] on a line, both already aligned
+  private static long countBetween(long c, long from, long to) {
+    from += (from - c) & 1;
+    to -= (to - c) & 1;
+    return from <= to ? (to - from) / 2 + 1 : 0;
+  }
+
+  // Convert a point of a segment back to a packed board cell
+  private static long toCell(boolean isU, long value, long along) {
+    long u = isU ? value : along;
+    long v = isU ? along : value;
+    return GuessStrategy.pack((int) ((u + v) / 2), (int) ((u - v) / 2));
+  }
+}
+
@@ -0,0 +1,125 @@
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+/**
+ * Compares ManhattanSolver with a brute-force solver that checks every cell
+ * against every answer.
+ *
+ * Both solvers receive the same answers (the guesses come from
+ * ManhattanSolver.suggest()) and must agree on the number of candidates after
+ * each one, so the benchmark doubles as a correctness check.
+ * The brute-force solver is skipped on boards too large to hold in memory.
+ */
+public class ManhattanSolverBenchmark {
+  // Constants: brute force is only run up to this many cells
+  private static final long BRUTE_FORCE_CELL_LIMIT = 1L << 24;
+
+  /**
+   * Entry point
+   *
+   * @param args [games per board] [seed]
+   */
+  public static void main(String[] args) {
+    int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+    int[][] boards = {
+        { 10, 10 }, { 100, 100 }, { 1000, 1000 }, { 4000, 4000 },
+        { 100000, 100000 }, { 1000000000, 1000000000 }
+    };
+
+    System.out.printf("%-22s %8s %14s %14s %10s%n", "board", "guesses", "solver ns/ans", "brute ns/ans", "speed-up");
+    for (int[] board : boards) {
+      run(board[0], board[1], games, new SplittableRandom(seed));
+    }
+  }
+
+  private static void run(int rows, int cols, int games, SplittableRandom random) {
+    boolean brute = (long) rows * cols <= BRUTE_FORCE_CELL_LIMIT;
+    ManhattanSolver solver = new ManhattanSolver(rows, cols);
+    BruteForceSolver bruteForce = brute ? new BruteForceSolver(rows, cols) : null;
+
+    long answers = 0;
+    long solverNanos = 0;
+    long bruteNanos = 0;
+
+    for (int game = 0; game < games; game++) {
+      int treasureX = random.nextInt(rows);
+      int treasureY = random.nextInt(cols);
+      solver.reset();
+      if (brute) {
+        bruteForce.reset();
+      }
+
+      while (true) {
+        long guess = solver.suggest();
+        int x = GuessStrategy.unpackX(guess);
+        int y = GuessStrategy.unpackY(guess);
+        int distance = Math.abs(x - treasureX) + Math.abs(y - treasureY);
+        answers++;
+
+        long start = System.nanoTime();
+        solver.addAnswer(x, y, distance);
+        long expected = solver.count();
+        solverNanos += System.nanoTime() - start;
+
+        if (brute) {
+          start = System.nanoTime();
+          bruteForce.addAnswer(x, y, distance);
+          long actual = bruteForce.count();
+          bruteNanos += System.nanoTime() - start;
+
+          if (actual != expected) {
+            throw new IllegalStateException(String.format("Mismatch on %sx%s after (%s, %s) -> %s: solver %s, brute force %s",
+                rows, cols, x, y, distance, expected, actual));
+          }
+        }
+
+        if (distance == 0) {
+          break;
+        }
+      }
+    }
+
+    double solverPerAnswer = (double) solverNanos / answers;
+    System.out.printf("%-22s %8.2f %14.1f %14s %10s%n", rows + "x" + cols, (double) answers / games, solverPerAnswer,
+        brute ? String.format("%.1f", (double) bruteNanos / answers) : "-",
+        brute ? String.format("%.0fx", bruteNanos / (double) solverNanos) : "-");
+  }
+}
+
+/**
+ * Reference solver: one bit per cell, every answer rescans the whole board.
+ */
+class BruteForceSolver {
+  private final int rows;
+  private final int cols;
+  private final BitSet candidates;
+  private long count;
+
+  public BruteForceSolver(int rows, int cols) {
+    this.rows = rows;
+    this.cols = cols;
+    this.candidates = new BitSet(rows * cols);
+    reset();
+  }
+
+  public void reset() {
+    candidates.set(0, rows * cols);
+    count = (long) rows * cols;
+  }
+
+  public void addAnswer(int x, int y, int distance) {
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      int cx = i / cols;
+      int cy = i % cols;
+      if (Math.abs(cx - x) + Math.abs(cy - y) != distance) {
+        candidates.clear(i);
+        count--;
+      }
+    }
+  }
+
+  public long count() {
+    return count;
+  }
+}
@@ -1,64 +1,181 @@
-
 /**
  * JavaDoc: https://www.baeldung.com/javadoc
  * Printf: https://www.baeldung.com/java-printstream-printf
  */
 import java.awt.Point;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Random;
-import java.util.Scanner;
 
 public class TreasureHunt {
   private final int rows;
   private final int cols;
   private final int maxGuesses;
-  private final String[][] grid;
+  private final GridStore grid;
+  private final GridRenderer renderer;
+  private final TreasureIndex treasures;
+  private final int treasureCount;
+  // First treasure, shown by the debug line when there is only one
   private final Point treasurePoint;
-  private final Random random;
-  private final Scanner scanner;
-  private final ArrayList<Point> guesses;
-
-  // Constants: grid symbols
-  private static final String EMPTY_CELL = "-";
-  private static final String GUESS_CELL = "+";
-  private static final String TREASURE_CELL = "*";
+  // Initial treasure positions ({xs, ys}) and the seed that chose them, for the journal
+  private final int[][] hiddenTreasures;
+  private final long seed;
+  private final GuessReader input;
+  private final GuessTracker guesses;
+  private GameJournal journal;
 
   public TreasureHunt(int rows, int cols) {
+    this(rows, cols, 1);
+  }
+
+  /**
+   * Initializes a game with several treasures hidden in distinct cells.
+   * Each guess reports the distance to the nearest treasure not found yet.
+   *
+   * @param rows          number of rows of the board
+   * @param cols          number of columns of the board
+   * @param treasureCount number of treasures, between 1 and rows * cols; the guess
+   *                      limit, half the cells, is raised to it if lower
+   */
+  public TreasureHunt(int rows, int cols, int treasureCount) {
+    this(rows, cols, treasureCount, new Random().nextLong());
+  }
+
+  /**
+   * Initializes a game whose treasures are hidden by a seeded generator,
+   * so the same seed always hides them in the same cells.
+   *
+   * @param rows          number of rows of the board
+   * @param cols          number of columns of the board
+   * @param treasureCount number of treasures, between 1 and rows * cols; the guess
+   *                      limit, half the cells, is raised to it if lower
+   * @param seed          seed of the generator
+   */
+  public TreasureHunt(int rows, int cols, int treasureCount, long seed) {
+    this(rows, cols, hideTreasures(rows, cols, treasureCount, new Random(seed)), seed);
+  }
+
+  // Initializes a game with the treasures at the given positions ({xs, ys})
+  private TreasureHunt(int rows, int cols, int[][] treasurePositions, long seed) {
     this.rows = rows;
     this.cols = cols;
-    this.maxGuesses = (rows * cols) / 2;
-    this.grid = new String[rows][cols];
-    this.random = new Random();
-    this.scanner = new Scanner(System.in);
-    this.guesses = new ArrayList<Point>();
-    this.treasurePoint = new Point(random.nextInt(rows), random.nextInt(cols));
-
-    // Initialize the grid and set all cells to empty state
-    for (int i = 0; i < rows; i++) {
-      for (int j = 0; j < cols; j++) {
-        grid[i][j] = EMPTY_CELL;
-      }
+    // Clamp so that huge boards do not overflow; at least one guess per treasure, so every game can be won
+    this.maxGuesses = (int) Math.max(Math.min(((long) rows * cols) / 2, Integer.MAX_VALUE),
+        treasurePositions[0].length);
+    // Every cell starts empty, so there is nothing to initialize
+    this.grid = GridStore.create(rows, cols);
+    this.renderer = new GridRenderer(grid, rows, cols, System.out, GridRenderer.detectAnsi());
+    this.input = new GuessReader(System.in);
+    this.guesses = new GuessTracker(rows, cols);
+    this.treasureCount = treasurePositions[0].length;
+    this.treasures = new TreasureIndex(rows, cols, treasurePositions[0], treasurePositions[1]);
+    this.treasurePoint = new Point(treasurePositions[0][0], treasurePositions[1][0]);
+    this.hiddenTreasures = treasurePositions;
+    this.seed = seed;
+  }
+
+  /**
+   * Hide treasures in distinct cells, using a tracker as the set of used cells
+   *
+   * @return the positions as {xs, ys}
+   */
+  private static int[][] hideTreasures(int rows, int cols, int treasureCount, Random random) {
+    int[] xs = new int[treasureCount];
+    int[] ys = new int[treasureCount];
+    GuessTracker used = new GuessTracker(rows, cols);
+    for (int i = 0; i < treasureCount; i++) {
+      do {
+        xs[i] = random.nextInt(rows);
+        ys[i] = random.nextInt(cols);
+      } while (!used.add(xs[i], ys[i]));
     }
+    return new int[][] { xs, ys };
   }
 
-  // Display the grid
-  private void displayGrid() {
-    for (int i = 0; i < rows; i++) {
-      for (int j = 0; j < cols; j++) {
-        System.out.print(grid[i][j] + " ");
+  /**
+   * Rebuild an unfinished game from the journal by applying its guesses again
+   *
+   * @param saved game read back from the journal
+   * @return the game, ready to continue
+   */
+  private static TreasureHunt resume(GameJournal.SavedGame saved) {
+    TreasureHunt treasureHunt = new TreasureHunt(saved.rows, saved.cols,
+        new int[][] { saved.treasureXs, saved.treasureYs }, saved.seed);
+    Point guess = new Point();
+    for (int i = 0; i < saved.guessCount; i++) {
+      guess.setLocation(saved.guessXs[i], saved.guessYs[i]);
+      treasureHunt.applyGuess(guess);
+    }
+    return treasureHunt;
+  }
+
+  /**
+   * Write every following guess to a journal
+   *
+   * @param journal   journal to append to
+   * @param startGame whether to record the start of this game (false when resuming)
+   */
+  private void attachJournal(GameJournal journal, boolean startGame) {
+    if (startGame) {
+      journal.startGame(rows, cols, treasureCount, seed);
+      for (int i = 0; i < treasureCount; i++) {
+        journal.treasure(hiddenTreasures[0][i], hiddenTreasures[1][i]);
       }
-      System.out.println();
+    }
+    this.journal = journal;
+  }
+
+  /**
+   * Record a new guess on the tracker, the grid, the treasures and the journal
+   *
+   * @param guess guessed position, valid and not repeated
+   * @return Manhattan distance to the nearest treasure left (0 if one was found)
+   */
+  private int applyGuess(Point guess) {
+    guesses.add(guess.x, guess.y);
+    int distance = getManhattanDistance(guess);
+
+    if (distance == 0) {
+      treasures.remove(guess.x, guess.y);
+      grid.set(guess.x, guess.y, GridStore.TREASURE);
+    } else {
+      grid.set(guess.x, guess.y, GridStore.GUESS);
+    }
+
+    if (journal != null) {
+      journal.guess(guess.x, guess.y);
+    }
+    return distance;
+  }
+
+  // Whether every treasure was found or no guess is left
+  private boolean isOver() {
+    return treasures.size() == 0 || guesses.size() >= maxGuesses;
+  }
+
+  // Record the end of the game in the journal, if any
+  private void endGame(boolean won) {
+    if (journal != null) {
+      journal.endGame(won);
+      journal.checkpoint();
     }
   }
 
+  // Display the grid around the last guess
+  private void displayGrid() {
+    int last = guesses.size() - 1;
+    renderer.render(guesses.getX(last), guesses.getY(last));
+  }
+
   /**
    * Calculate Manhattan distance
    * 
    * @param guess guessed position
-   * @return Manhattan distance to treasure
+   * @return Manhattan distance to the nearest treasure not found yet
    */
   private int getManhattanDistance(Point guess) {
-    return Math.abs(guess.x - treasurePoint.x) + Math.abs(guess.y - treasurePoint.y);
+    return treasures.nearestDistance(guess.x, guess.y);
   }
 
   /**
@@ -76,73 +193,92 @@ public class TreasureHunt {
    */
   private void start() {
     System.out.println("---------- Welcome to Treasure Hunt ----------");
-    System.out.printf("[Debug] Treasure Location: (%s, %s)%n", treasurePoint.x, treasurePoint.y);
+    if (treasureCount == 1) {
+      System.out.printf("[Debug] Treasure Location: (%s, %s)%n", treasurePoint.x, treasurePoint.y);
+    } else {
+      System.out.printf("[Debug] %s treasures hidden%n", treasureCount);
+    }
+
+    // One Point reused for every turn
+    Point guess = new Point();
 
     while (true) {
       // Request user input
       System.out.print("Enter your guess (row and column) of the treasure location: ");
-      String[] input = scanner.nextLine().trim().split(" ");
+      int status = input.next();
+
+      // Case: No more input (e.g. end of a piped replay)
+      if (status == GuessReader.EOF) {
+        renderer.finish();
+        break;
+      }
 
       // Expect a valid coordinate
-      if (input.length != 2) {
+      if (status == GuessReader.INVALID) {
         promptUser();
         continue;
       }
 
-      try {
-        Point guess = new Point(Integer.parseInt(input[0]), Integer.parseInt(input[1]));
-
-        // Case: Within grid bounds? - no
-        if (!validateGuess(guess)) {
-          promptUser();
-          continue;
-        }
+      guess.setLocation(input.getX(), input.getY());
 
-        // Case: Within grid bounds? - yes
-        // |
-        // v
-        // Case: Repeated guess - yes
-        if (guesses.contains(guess)) {
-          System.out.println("Repeated guess! Please input again.");
-          continue;
-        }
+      // Case: Within grid bounds? - no
+      if (!validateGuess(guess)) {
+        promptUser();
+        continue;
+      }
 
-        // Case: Repeated guess - no
-        // Add guess to list
-        guesses.add(guess);
-        // Update grid
-        grid[guess.x][guess.y] = GUESS_CELL;
+      // Case: Within grid bounds? - yes
+      // |
+      // v
+      // Case: Repeated guess - yes
+      if (guesses.contains(guess.x, guess.y)) {
+        System.out.println("Repeated guess! Please input again.");
+        continue;
+      }
 
-        // Calculate Manhattan distance
-        int distance = getManhattanDistance(guess);
+      // Case: Repeated guess - no
+      // Update tracker, grid (a found treasure is marked and removed) and journal,
+      // then calculate Manhattan distance
+      int distance = applyGuess(guess);
 
-        // Case: Found treasure? - yes
-        if (guess.equals(treasurePoint)) {
-          System.out.printf("Congratulations! You found the treasure at (%s, %s) with %s unique guess(es)!%n", treasurePoint.x, treasurePoint.y, guesses.size());
-          // Mark treasure on grid
-          grid[treasurePoint.x][treasurePoint.y] = TREASURE_CELL;
+      // Case: Found treasure? - yes
+      if (distance == 0) {
+        // Case: Last treasure? - yes
+        if (treasures.size() == 0) {
+          if (treasureCount == 1) {
+            System.out.printf("Congratulations! You found the treasure at (%s, %s) with %s unique guess(es)!%n", guess.x, guess.y, guesses.size());
+          } else {
+            System.out.printf("Congratulations! You found all %s treasures with %s unique guess(es)!%n", treasureCount, guesses.size());
+          }
           // Display final grid
           displayGrid();
+          renderer.finish();
+          endGame(true);
           break;
         }
 
+        // Case: Last treasure? - no
+        System.out.printf("You found a treasure at (%s, %s)! %s treasure(s) left.%n", guess.x, guess.y, treasures.size());
+      } else if (treasureCount == 1) {
         // Case: Found treasure? - no
         System.out.printf("The manhattan distance of the position (%s, %s) to the treasure is %s.%n", guess.x, guess.y, distance);
-        System.out.printf("You have now made %s unique guess(es).%n", guesses.size());
-        displayGrid();
+      } else {
+        System.out.printf("The manhattan distance of the position (%s, %s) to the nearest treasure is %s.%n", guess.x, guess.y, distance);
+      }
 
-        // Case: Max guesses reached? - yes
-        if (guesses.size() == maxGuesses) {
-          System.out.println("You have reached the maximum number of guesses. Game Over!");
-          break;
-        }
+      System.out.printf("You have now made %s unique guess(es).%n", guesses.size());
+      displayGrid();
 
-        // Case: Max guesses reached? - no
-        System.out.println("Keep searching!\n");
-      } catch (NumberFormatException e) {
-        promptUser();
-        continue;
+      // Case: Max guesses reached? - yes
+      if (guesses.size() == maxGuesses) {
+        renderer.finish();
+        System.out.println("You have reached the maximum number of guesses. Game Over!");
+        endGame(false);
+        break;
       }
+
+      // Case: Max guesses reached? - no
+      System.out.println("Keep searching!\n");
     }
   }
 
@@ -154,11 +290,14 @@ public class TreasureHunt {
   /**
    * Entry point
    * 
-   * @param args <m> and <n> for the grid dimensions
+   * Set -Dtreasurehunt.journal=<file> to record the game in a journal; an
+   * unfinished game found in that journal is resumed instead of starting a new one.
+   * 
+   * @param args <m> and <n> for the grid dimensions, optionally the number of treasures
    */
   public static void main(String[] args) {
-    if (args.length != 2) {
-      System.out.println("Usage: java TreasureHunt <m> <n>");
+    if (args.length != 2 && args.length != 3) {
+      System.out.println("Usage: java TreasureHunt <m> <n> [treasures]");
       return;
     }
 
@@ -171,12 +310,52 @@ public class TreasureHunt {
         return;
       }
 
+      int treasureCount = args.length == 3 ? Integer.parseInt(args[2]) : 1;
+      if (treasureCount <= 0 || treasureCount > (long) rows * cols) {
+        System.out.println("treasures should be between 1 and m * n");
+        return;
+      }
+
       // Case: Valid arguments? - yes
-      TreasureHunt treasureHunt = new TreasureHunt(rows, cols);
-      treasureHunt.start();
+      String journalPath = System.getProperty("treasurehunt.journal");
+      if (journalPath == null) {
+        TreasureHunt treasureHunt = new TreasureHunt(rows, cols, treasureCount);
+        treasureHunt.start();
+        return;
+      }
+
+      Path path = Path.of(journalPath);
+      GameJournal.SavedGame saved = Files.exists(path) ? GameJournal.findUnfinishedGame(path) : null;
+
+      try (GameJournal journal = new GameJournal(path)) {
+        TreasureHunt treasureHunt = null;
+
+        if (saved != null) {
+          treasureHunt = resume(saved);
+          treasureHunt.attachJournal(journal, false);
+
+          // Case: Crashed right after the last guess - close that game
+          if (treasureHunt.isOver()) {
+            treasureHunt.endGame(treasureHunt.treasures.size() == 0);
+            treasureHunt = null;
+          } else {
+            System.out.printf("Resuming the unfinished %sx%s game from %s (%s guess(es) made)%n", saved.rows, saved.cols,
+                path, saved.guessCount);
+          }
+        }
+
+        if (treasureHunt == null) {
+          treasureHunt = new TreasureHunt(rows, cols, treasureCount);
+          treasureHunt.attachJournal(journal, true);
+        }
+
+        treasureHunt.start();
+      }
     } catch (NumberFormatException e) {
       // Case: Valid arguments? - no
       System.out.println("m and n should be positive numbers");
+    } catch (IOException e) {
+      System.out.println("Journal error: " + e.getMessage());
     }
   }
 }
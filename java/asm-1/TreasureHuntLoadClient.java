@@ -0,0 +1,272 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+/**
+ * Load generator for TreasureHuntServer.
+ *
+ * Opens many sessions from one selector thread and plays them with the
+ * solver strategy as fast as the server answers, then reports how many
+ * sessions were held and how many guesses per second were sustained.
+ */
+public class TreasureHuntLoadClient {
+  private final String host;
+  private final int port;
+  private final int sessionCount;
+  private final int seconds;
+
+  // Statistics
+  private int connected;
+  private long guesses;
+  private long games;
+
+  private static final int BUFFER_SIZE = 256;
+
+  /**
+   * Initializes a load generator.
+   *
+   * @param host         server host
+   * @param port         server port
+   * @param sessionCount number of concurrent sessions to open
+   * @param seconds      how long to play
+   */
+  public TreasureHuntLoadClient(String host, int port, int sessionCount, int seconds) {
+    this.host = host;
+    this.port = port;
+    this.sessionCount = sessionCount;
+    this.seconds = seconds;
+  }
+
+  /**
+   * Open the sessions, play for the configured time and print a summary.
+   *
+   * @throws IOException if the selector cannot be opened
+   */
+  public void run() throws IOException {
+    Selector selector = Selector.open();
+    SplittableRandom random = new SplittableRandom();
+    InetSocketAddress address = new InetSocketAddress(host, port);
+
+    for (int i = 0; i < sessionCount; i++) {
+      SocketChannel channel = SocketChannel.open();
+      channel.configureBlocking(false);
+      channel.socket().setTcpNoDelay(true);
+      channel.connect(address);
+      channel.register(selector, SelectionKey.OP_CONNECT, new Connection(random.split()));
+    }
+
+    long start = System.nanoTime();
+    long end = start + seconds * 1_000_000_000L;
+    long lastReport = start;
+    long lastGuesses = 0;
+
+    while (System.nanoTime() < end) {
+      selector.select(100);
+
+      Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        SelectionKey key = keys.next();
+        keys.remove();
+
+        try {
+          if (key.isConnectable()) {
+            ((SocketChannel) key.channel()).finishConnect();
+            key.interestOps(SelectionKey.OP_READ);
+            ((Connection) key.attachment()).connected = true;
+            connected++;
+          } else if (key.isReadable()) {
+            read(key);
+          }
+        } catch (IOException e) {
+          // Case: Session lost after connecting - no longer held
+          if (((Connection) key.attachment()).connected) {
+            connected--;
+          }
+          key.cancel();
+          key.channel().close();
+        }
+      }
+
+      // Report once per second
+      long now = System.nanoTime();
+      if (now - lastReport >= 1_000_000_000L) {
+        System.out.printf("Sessions held: %s, guesses/s: %.0f%n", connected,
+            (guesses - lastGuesses) / ((now - lastReport) / 1e9));
+        lastReport = now;
+        lastGuesses = guesses;
+      }
+    }
+
+    double elapsed = (System.nanoTime() - start) / 1e9;
+    System.out.printf("Summary: %s/%s session(s) held, %s game(s) finished, %s guess(es) in %.1f s (%.0f guesses/s)%n",
+        connected, sessionCount, games, guesses, elapsed, guesses / elapsed);
+
+    for (SelectionKey key : selector.keys()) {
+      key.channel().close();
+    }
+    selector.close();
+  }
+
+  private void read(SelectionKey key) throws IOException {
+    Connection connection = (Connection) key.attachment();
+    SocketChannel channel = (SocketChannel) key.channel();
+
+    if (channel.read(connection.in) < 0) {
+      throw new IOException("Server closed the session");
+    }
+
+    connection.in.flip();
+    int lineStart = connection.in.position();
+    for (int i = lineStart; i < connection.in.limit(); i++) {
+      if (connection.in.get(i) == '\n') {
+        handleLine(connection, lineStart, i);
+        lineStart = i + 1;
+      }
+    }
+    connection.in.position(lineStart);
+    connection.in.compact();
+
+    // Replies are a few bytes, a blocking-style loop is enough here
+    connection.out.flip();
+    while (connection.out.hasRemaining()) {
+      channel.write(connection.out);
+    }
+    connection.out.clear();
+  }
+
+  private void handleLine(Connection connection, int from, int to) {
+    ByteBuffer in = connection.in;
+    int numbers = parseNumbers(in, from, to, connection.values);
+
+    switch (in.get(from)) {
+      // READY <m> <n> <maxGuesses> or REPEATED
+      case 'R':
+        if (numbers == 3) {
+          connection.strategy.newGame((int) connection.values[0], (int) connection.values[1], connection.random);
+        }
+        sendGuess(connection);
+        break;
+
+      // DIST <distance> <guesses>
+      case 'D':
+        connection.strategy.onResult(connection.lastX, connection.lastY, (int) connection.values[0]);
+        sendGuess(connection);
+        break;
+
+      // WIN or LOSE, the server follows with READY
+      case 'W':
+      case 'L':
+        games++;
+        break;
+
+      // INVALID: the strategy went off the board, try again
+      default:
+        sendGuess(connection);
+        break;
+    }
+  }
+
+  private void sendGuess(Connection connection) {
+    long guess = connection.strategy.nextGuess();
+    connection.lastX = GuessStrategy.unpackX(guess);
+    connection.lastY = GuessStrategy.unpackY(guess);
+    putNumber(connection.out, connection.lastX);
+    connection.out.put((byte) ' ');
+    putNumber(connection.out, connection.lastY);
+    connection.out.put((byte) '\n');
+    guesses++;
+  }
+
+  // Read up to values.length non-negative numbers from a line
+  private static int parseNumbers(ByteBuffer in, int from, int to, long[] values) {
+    int count = 0;
+    long value = 0;
+    boolean inNumber = false;
+
+    for (int i = from; i <= to && count < values.length; i++) {
+      byte b = i < to ? in.get(i) : (byte) ' ';
+      if (b >= '0' && b <= '9') {
+        value = value * 10 + (b - '0');
+        inNumber = true;
+      } else if (inNumber) {
+        values[count++] = value;
+        value = 0;
+        inNumber = false;
+      }
+    }
+    return count;
+  }
+
+  private static void putNumber(ByteBuffer out, int value) {
+    if (value < 0) {
+      out.put((byte) '-');
+      value = -value;
+    }
+
+    int start = out.position();
+    do {
+      out.put((byte) ('0' + value % 10));
+      value /= 10;
+    } while (value > 0);
+
+    // Digits were written backwards
+    for (int i = start, j = out.position() - 1; i < j; i++, j--) {
+      byte tmp = out.get(i);
+      out.put(i, out.get(j));
+      out.put(j, tmp);
+    }
+  }
+
+  /**
+   * State of one session on the client side.
+   */
+  private static class Connection {
+    private final SplittableRandom random;
+    private final GuessStrategy strategy = GuessStrategy.byName("solver");
+    private final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+    private final long[] values = new long[3];
+    private int lastX;
+    private int lastY;
+    private boolean connected;
+
+    Connection(SplittableRandom random) {
+      this.random = random;
+    }
+  }
+
+  /**
+   * Entry point
+   *
+   * @param args <sessions> <seconds> [host] [port]
+   */
+  public static void main(String[] args) {
+    if (args.length < 2 || args.length > 4) {
+      System.out.println("Usage: java TreasureHuntLoadClient <sessions> <seconds> [host] [port]");
+      return;
+    }
+
+    try {
+      int sessions = Integer.parseInt(args[0]);
+      int seconds = Integer.parseInt(args[1]);
+      String host = args.length > 2 ? args[2] : "127.0.0.1";
+      int port = args.length > 3 ? Integer.parseInt(args[3]) : TreasureHuntServer.DEFAULT_PORT;
+
+      if (sessions <= 0 || seconds <= 0) {
+        System.out.println("sessions and seconds should be greater than zero");
+        return;
+      }
+
+      new TreasureHuntLoadClient(host, port, sessions, seconds).run();
+    } catch (NumberFormatException e) {
+      System.out.println("sessions, seconds and port should be positive numbers");
+    } catch (IOException e) {
+      System.out.println("Client error: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,342 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+/**
+ * Hosts many Treasure Hunt games over TCP from one selector thread.
+ *
+ * Every connection is a session with its own HuntGame, so games share no
+ * state. The protocol is line based ASCII:
+ * - server: "READY <m> <n> <maxGuesses>" when a new game starts
+ * - client: "<row> <column>"
+ * - server: "DIST <distance> <guesses>", "WIN <guesses>", "LOSE <guesses>",
+ * "REPEATED" or "INVALID"
+ * After WIN or LOSE the session starts a new game right away.
+ *
+ * Reference: https://www.baeldung.com/java-nio-selector
+ */
+public class TreasureHuntServer {
+  private final int rows;
+  private final int cols;
+  private final int port;
+  private final SplittableRandom random;
+
+  // Statistics, only touched by the selector thread
+  private int sessions;
+  private int peakSessions;
+  private long guesses;
+
+  private static final int BUFFER_SIZE = 256;
+  // Replies to one read of BUFFER_SIZE bytes fit many times over
+  private static final int MAX_OUTPUT_SIZE = 64 * 1024;
+  private static final long REPORT_INTERVAL_NANOS = 1_000_000_000L;
+  public static final int DEFAULT_PORT = 7777;
+
+  /**
+   * Initializes a server for boards of the given dimensions.
+   *
+   * @param rows number of rows of every board
+   * @param cols number of columns of every board
+   * @param port TCP port to listen on
+   */
+  public TreasureHuntServer(int rows, int cols, int port) {
+    this.rows = rows;
+    this.cols = cols;
+    this.port = port;
+    // Only the selector thread draws treasures, so one generator is enough
+    this.random = new SplittableRandom();
+  }
+
+  /**
+   * Run the selector loop until the process is stopped.
+   *
+   * @throws IOException if the server socket cannot be opened
+   */
+  public void serve() throws IOException {
+    Selector selector = Selector.open();
+    ServerSocketChannel server = ServerSocketChannel.open();
+    server.bind(new InetSocketAddress("127.0.0.1", port), 4096);
+    server.configureBlocking(false);
+    server.register(selector, SelectionKey.OP_ACCEPT);
+    System.out.printf("Treasure Hunt server on 127.0.0.1:%s with %sx%s boards%n", port, rows, cols);
+
+    long lastReport = System.nanoTime();
+    long lastGuesses = 0;
+
+    while (true) {
+      selector.select(1000);
+
+      Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        SelectionKey key = keys.next();
+        keys.remove();
+
+        // The server key handles its own failures, so that it is never closed here
+        if (key.isAcceptable()) {
+          accept(server, selector);
+          continue;
+        }
+
+        try {
+          if (key.isReadable()) {
+            read(key);
+          }
+          if (key.isValid() && key.isWritable()) {
+            flush(key);
+          }
+        } catch (IOException e) {
+          close(key);
+        }
+      }
+
+      // Report once per second
+      long now = System.nanoTime();
+      if (now - lastReport >= REPORT_INTERVAL_NANOS) {
+        double seconds = (now - lastReport) / 1e9;
+        System.out.printf("Sessions: %s (peak %s), guesses/s: %.0f%n", sessions, peakSessions,
+            (guesses - lastGuesses) / seconds);
+        lastReport = now;
+        lastGuesses = guesses;
+      }
+    }
+  }
+
+  private void accept(ServerSocketChannel server, Selector selector) {
+    while (true) {
+      SocketChannel channel;
+      try {
+        channel = server.accept();
+      } catch (IOException e) {
+        // Case: Cannot accept now (e.g. out of file descriptors) - try again on the next select
+        return;
+      }
+      if (channel == null) {
+        return;
+      }
+
+      // A client that resets right away only loses its own session
+      SelectionKey key = null;
+      try {
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+
+        Session session = new Session(new HuntGame(rows, cols));
+        key = channel.register(selector, SelectionKey.OP_READ, session);
+        sessions++;
+        peakSessions = Math.max(peakSessions, sessions);
+
+        newGame(session);
+        flush(key);
+      } catch (IOException e) {
+        if (key != null) {
+          close(key);
+        } else {
+          try {
+            channel.close();
+          } catch (IOException ignored) {
+            // Already closed, nothing to do
+          }
+        }
+      }
+    }
+  }
+
+  private void read(SelectionKey key) throws IOException {
+    Session session = (Session) key.attachment();
+    SocketChannel channel = (SocketChannel) key.channel();
+
+    if (channel.read(session.in) < 0) {
+      close(key);
+      return;
+    }
+
+    // Handle every complete line, keep the rest for the next read
+    session.in.flip();
+    int lineStart = session.in.position();
+    for (int i = lineStart; i < session.in.limit(); i++) {
+      if (session.in.get(i) == '\n') {
+        handleLine(session, lineStart, i);
+        lineStart = i + 1;
+      }
+    }
+    session.in.position(lineStart);
+    session.in.compact();
+
+    // Case: Line longer than the buffer - drop it
+    if (!session.in.hasRemaining()) {
+      session.in.clear();
+      reply(session, "INVALID");
+    }
+
+    // Case: Replies over the limit - the client does not keep up, drop it
+    if (session.overflowed) {
+      close(key);
+      return;
+    }
+
+    flush(key);
+  }
+
+  // Parse "<row> <column>" between from (inclusive) and to (exclusive)
+  private void handleLine(Session session, int from, int to) {
+    ByteBuffer in = session.in;
+    long[] values = session.values;
+    int count = 0;
+    int i = from;
+
+    while (i < to && count <= 2) {
+      byte b = in.get(i);
+      if (b == ' ' || b == '\r' || b == '\t') {
+        i++;
+        continue;
+      }
+
+      boolean negative = b == '-';
+      if (negative) {
+        i++;
+      }
+
+      long value = 0;
+      int digits = 0;
+      while (i < to && in.get(i) >= '0' && in.get(i) <= '9' && digits < 11) {
+        value = value * 10 + (in.get(i) - '0');
+        digits++;
+        i++;
+      }
+
+      // Anything else than digits makes the line invalid
+      if (digits == 0 || (i < to && in.get(i) != ' ' && in.get(i) != '\r' && in.get(i) != '\t')) {
+        count = -1;
+        break;
+      }
+
+      if (count < 2) {
+        values[count] = negative ? -value : value;
+      }
+      count++;
+    }
+
+    if (count != 2 || values[0] < Integer.MIN_VALUE || values[0] > Integer.MAX_VALUE
+        || values[1] < Integer.MIN_VALUE || values[1] > Integer.MAX_VALUE) {
+      reply(session, "INVALID");
+      return;
+    }
+
+    HuntGame game = session.game;
+    int distance = game.guess((int) values[0], (int) values[1]);
+
+    if (distance == HuntGame.INVALID) {
+      reply(session, "INVALID");
+    } else if (distance == HuntGame.REPEATED) {
+      reply(session, "REPEATED");
+    } else {
+      guesses++;
+
+      if (game.isWon()) {
+        reply(session, "WIN " + game.getGuessCount());
+        newGame(session);
+      } else if (game.isOver()) {
+        reply(session, "LOSE " + game.getGuessCount());
+        newGame(session);
+      } else {
+        reply(session, "DIST " + distance + " " + game.getGuessCount());
+      }
+    }
+  }
+
+  private void newGame(Session session) {
+    session.game.reset(random.nextInt(rows), random.nextInt(cols));
+    reply(session, "READY " + rows + " " + cols + " " + session.game.getMaxGuesses());
+  }
+
+  private void reply(Session session, String line) {
+    int needed = line.length() + 1;
+    if (session.out.position() + needed > MAX_OUTPUT_SIZE) {
+      session.overflowed = true;
+      return;
+    }
+    if (session.out.remaining() < needed) {
+      ByteBuffer bigger = ByteBuffer.allocate(Math.min(MAX_OUTPUT_SIZE,
+          Math.max(session.out.capacity() * 2, session.out.position() + needed)));
+      session.out.flip();
+      bigger.put(session.out);
+      session.out = bigger;
+    }
+    session.out.put(line.getBytes(StandardCharsets.US_ASCII)).put((byte) '\n');
+  }
+
+  // Write what we can. While output is pending, wait for OP_WRITE instead of reading
+  // more guesses, so a client that does not read its replies cannot grow the buffer
+  private void flush(SelectionKey key) throws IOException {
+    Session session = (Session) key.attachment();
+    session.out.flip();
+    ((SocketChannel) key.channel()).write(session.out);
+    boolean pending = session.out.hasRemaining();
+    session.out.compact();
+    key.interestOps(pending ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+  }
+
+  private void close(SelectionKey key) {
+    if (key.attachment() instanceof Session) {
+      sessions--;
+    }
+    key.cancel();
+    try {
+      key.channel().close();
+    } catch (IOException e) {
+      // Already closed, nothing to do
+    }
+  }
+
+  /**
+   * State of one connection.
+   */
+  private static class Session {
+    private final HuntGame game;
+    private final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+    private final long[] values = new long[2];
+    // Set when a reply would pass MAX_OUTPUT_SIZE
+    private boolean overflowed;
+
+    Session(HuntGame game) {
+      this.game = game;
+    }
+  }
+
+  /**
+   * Entry point
+   *
+   * @param args <m> <n> [port]
+   */
+  public static void main(String[] args) {
+    if (args.length < 2 || args.length > 3) {
+      System.out.println("Usage: java TreasureHuntServer <m> <n> [port]");
+      return;
+    }
+
+    try {
+      int rows = Integer.parseInt(args[0]);
+      int cols = Integer.parseInt(args[1]);
+      int port = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PORT;
+
+      if (rows <= 0 || cols <= 0) {
+        System.out.println("m and n should be greater than zero");
+        return;
+      }
+
+      new TreasureHuntServer(rows, cols, port).serve();
+    } catch (NumberFormatException e) {
+      System.out.println("m, n and port should be positive numbers");
+    } catch (IOException e) {
+      System.out.println("Server error: " + e.getMessage());
+    }
+  }
+}
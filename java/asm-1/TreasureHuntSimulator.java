@@ -0,0 +1,290 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Headless batch mode for Treasure Hunt.
+ *
+ * Runs many games with an automated strategy on all cores (a parallel stream
+ * on the common fork/join pool). Every worker owns its game, its strategy and
+ * a SplittableRandom split from one seed, so workers share nothing while
+ * running and results are reproducible for a given seed and worker count.
+ *
+ * Set -Dtreasurehunt.journal=<prefix> to archive every game: each worker
+ * appends to its own journal <prefix>-<worker>.thj, which "java GameJournal"
+ * replays for analytics.
+ *
+ * Reference: https://www.baeldung.com/java-when-to-use-parallel-stream
+ */
+public class TreasureHuntSimulator {
+  private final int rows;
+  private final int cols;
+  private final long games;
+  private final Supplier<GuessStrategy> strategyFactory;
+  private final long seed;
+  private final String journalPrefix = System.getProperty("treasurehunt.journal");
+
+  // Constants: guesses above this share the last histogram bucket
+  private static final int HISTOGRAM_LIMIT = 1 << 16;
+
+  /**
+   * Initializes a batch of games.
+   *
+   * @param rows            number of rows of the board
+   * @param cols            number of columns of the board
+   * @param games           number of games to play
+   * @param strategyFactory creates one strategy per worker
+   * @param seed            seed of the root random generator
+   */
+  public TreasureHuntSimulator(int rows, int cols, long games, Supplier<GuessStrategy> strategyFactory, long seed) {
+    this.rows = rows;
+    this.cols = cols;
+    this.games = games;
+    this.strategyFactory = strategyFactory;
+    this.seed = seed;
+  }
+
+  /**
+   * Play all games and merge the results of every worker.
+   *
+   * @return the merged result
+   */
+  public Result run() {
+    int workers = Runtime.getRuntime().availableProcessors();
+
+    // SplittableRandom is not thread-safe, so split on this thread first
+    SplittableRandom root = new SplittableRandom(seed);
+    SplittableRandom[] randoms = new SplittableRandom[workers];
+    for (int i = 0; i < workers; i++) {
+      randoms[i] = root.split();
+    }
+
+    long start = System.nanoTime();
+    Result result = IntStream.range(0, workers)
+        .parallel()
+        .mapToObj(i -> play(i, games / workers + (i < games % workers ? 1 : 0), randoms[i]))
+        .reduce(Result::merge)
+        .orElseGet(() -> new Result(histogramSize()));
+    result.nanos = System.nanoTime() - start;
+    return result;
+  }
+
+  // One worker: play its share of the games with its own state
+  private Result play(int worker, long count, SplittableRandom random) {
+    if (journalPrefix == null) {
+      return play(count, random, null);
+    }
+
+    try (GameJournal journal = new GameJournal(Path.of(journalPrefix + "-" + worker + ".thj"))) {
+      return play(count, random, journal);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Result play(long count, SplittableRandom random, GameJournal journal) {
+    HuntGame game = new HuntGame(rows, cols);
+    GuessStrategy strategy = strategyFactory.get();
+    Result result = new Result(histogramSize());
+
+    for (long n = 0; n < count; n++) {
+      game.reset(random.nextInt(rows), random.nextInt(cols));
+      strategy.newGame(rows, cols, random);
+
+      // The treasure comes from the worker's generator, so there is no seed of its own
+      if (journal != null) {
+        journal.startGame(rows, cols, 1, 0);
+        journal.treasure(game.getTreasureX(), game.getTreasureY());
+      }
+
+      while (!game.isOver()) {
+        long guess = strategy.nextGuess();
+        int x = GuessStrategy.unpackX(guess);
+        int y = GuessStrategy.unpackY(guess);
+        int distance = game.guess(x, y);
+
+        // Case: Invalid or repeated guess - ask the strategy again
+        if (distance < 0) {
+          continue;
+        }
+
+        strategy.onResult(x, y, distance);
+        if (journal != null) {
+          journal.guess(x, y);
+        }
+      }
+
+      if (journal != null) {
+        journal.endGame(game.isWon());
+      }
+      result.record(game.isWon(), game.getGuessCount());
+    }
+
+    return result;
+  }
+
+  private int histogramSize() {
+    // One bucket per possible number of guesses, as HuntGame allows them
+    return (int) Math.min(HISTOGRAM_LIMIT, Math.max(1, Math.min(((long) rows * cols) / 2, Integer.MAX_VALUE))) + 1;
+  }
+
+  /**
+   * Counters collected by one worker, or merged from several.
+   */
+  public static class Result {
+    // winsByGuesses[k] = number of games won with exactly k guesses
+    private final long[] winsByGuesses;
+    private long wins;
+    private long losses;
+    private long totalGuesses;
+    private int maxGuesses; // exact, winsByGuesses clamps at its last bucket
+    private long nanos;
+
+    Result(int histogramSize) {
+      this.winsByGuesses = new long[histogramSize];
+    }
+
+    void record(boolean won, int guesses) {
+      totalGuesses += guesses;
+      if (won) {
+        wins++;
+        winsByGuesses[Math.min(guesses, winsByGuesses.length - 1)]++;
+        maxGuesses = Math.max(maxGuesses, guesses);
+      } else {
+        losses++;
+      }
+    }
+
+    Result merge(Result other) {
+      for (int i = 0; i < winsByGuesses.length; i++) {
+        winsByGuesses[i] += other.winsByGuesses[i];
+      }
+      wins += other.wins;
+      losses += other.losses;
+      totalGuesses += other.totalGuesses;
+      maxGuesses = Math.max(maxGuesses, other.maxGuesses);
+      return this;
+    }
+
+    public long getWins() {
+      return wins;
+    }
+
+    public long getLosses() {
+      return losses;
+    }
+
+    /**
+     * Returns the most guesses any won game needed.
+     *
+     * @return The number of guesses, or 0 if no game was won.
+     */
+    public int getMaxGuesses() {
+      return maxGuesses;
+    }
+
+    public double getGamesPerSecond() {
+      return (wins + losses) / (nanos / 1e9);
+    }
+
+    /**
+     * Returns the number of guesses needed by the given fraction of wins.
+     *
+     * @param fraction between 0 and 1, e.g. 0.99 for the 99th percentile
+     * @return The number of guesses, or 0 if no game was won. Wins past the
+     *         last histogram bucket count as that bucket, except for the max.
+     */
+    public int percentile(double fraction) {
+      if (fraction >= 1) {
+        return maxGuesses;
+      }
+
+      long target = (long) Math.ceil(wins * fraction);
+      long seen = 0;
+      for (int i = 0; i < winsByGuesses.length; i++) {
+        seen += winsByGuesses[i];
+        if (seen >= target && seen > 0) {
+          return i;
+        }
+      }
+      return 0;
+    }
+
+    /**
+     * Print the summary and the distribution of guesses needed to win.
+     */
+    public void print() {
+      long played = wins + losses;
+      System.out.printf("Games: %s (won %s, lost %s) in %.3f s%n", played, wins, losses, nanos / 1e9);
+      System.out.printf("Throughput: %.0f games/s, mean %.2f guesses per game%n", getGamesPerSecond(),
+          played == 0 ? 0.0 : (double) totalGuesses / played);
+      System.out.printf("Guesses to win: p50 %s, p90 %s, p99 %s, max %s%n", percentile(0.5), percentile(0.9),
+          percentile(0.99), maxGuesses);
+
+      if (wins == 0) {
+        return;
+      }
+
+      // Group the histogram into at most 20 rows, the last one ending at the true max
+      int max = Math.min(maxGuesses, winsByGuesses.length - 1);
+      int width = Math.max(1, (max + 19) / 20);
+      System.out.println("Distribution of guesses to win:");
+      for (int from = 1; from <= max; from += width) {
+        long count = 0;
+        for (int i = from; i < from + width && i < winsByGuesses.length; i++) {
+          count += winsByGuesses[i];
+        }
+        int to = from + width - 1 >= max ? maxGuesses : from + width - 1;
+        int bar = (int) Math.round(40.0 * count / wins);
+        System.out.printf("%8s-%-8s %10s %s%n", from, to, count, "#".repeat(bar));
+      }
+    }
+  }
+
+  /**
+   * Entry point
+   *
+   * @param args <m> <n> <games> [strategy] [seed]
+   */
+  public static void main(String[] args) {
+    if (args.length < 3 || args.length > 5) {
+      System.out.println("Usage: java TreasureHuntSimulator <m> <n> <games> [random|sweep|solver] [seed]");
+      return;
+    }
+
+    try {
+      int rows = Integer.parseInt(args[0]);
+      int cols = Integer.parseInt(args[1]);
+      long games = Long.parseLong(args[2]);
+      String strategy = args.length > 3 ? args[3] : "random";
+      long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+
+      if (rows <= 0 || cols <= 0 || games <= 0) {
+        System.out.println("m, n and games should be greater than zero");
+        return;
+      }
+
+      // Distances are ints, so the farthest two cells must be at most Integer.MAX_VALUE apart
+      if ((long) rows + cols - 2 > Integer.MAX_VALUE) {
+        System.out.println("m + n should be at most " + Integer.MAX_VALUE);
+        return;
+      }
+
+      // Fail early on an unknown strategy name
+      GuessStrategy.byName(strategy);
+
+      System.out.printf("Simulating %s game(s) on a %sx%s board with the %s strategy (seed %s)%n", games, rows, cols,
+          strategy, seed);
+      new TreasureHuntSimulator(rows, cols, games, () -> GuessStrategy.byName(strategy), seed).run().print();
+    } catch (NumberFormatException e) {
+      System.out.println("m, n, games and seed should be numbers");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    } catch (UncheckedIOException e) {
+      System.out.println("Journal error: " + e.getCause().getMessage());
+    }
+  }
+}
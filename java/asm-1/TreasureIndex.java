@@ -0,0 +1,198 @@
+/**
+ * Spatial index of the treasures that have not been found yet.
+ *
+ * Treasures are bucketed on a grid in the rotated coordinates u = x + y and
+ * v = x - y, where the Manhattan distance becomes max(|du|, |dv|). A nearest
+ * query visits rings of buckets around the guess and stops as soon as the
+ * next ring cannot be closer than the best treasure so far, so it touches a
+ * handful of buckets instead of every treasure.
+ * Removing a treasure is O(bucket size); the index is rebuilt when most of
+ * its treasures are gone, so queries do not slow down on empty buckets.
+ */
+public class TreasureIndex {
+  private final int rows;
+  private final int cols;
+
+  // Treasure positions, indexed by treasure id
+  private int[] xs;
+  private int[] ys;
+  private int size;
+
+  // Buckets: entries[bucketStart[b] .. bucketStart[b] + bucketCount[b]) are the ids in bucket b
+  private int cellSize;
+  private int bucketsU;
+  private int bucketsV;
+  private int[] bucketStart;
+  private int[] bucketCount;
+  private int[] entries;
+  private int builtSize;
+
+  /**
+   * Initializes an index over the given treasures.
+   *
+   * @param rows number of rows of the board
+   * @param cols number of columns of the board
+   * @param xs   rows of the treasures
+   * @param ys   columns of the treasures (same length as xs)
+   */
+  public TreasureIndex(int rows, int cols, int[] xs, int[] ys) {
+    this.rows = rows;
+    this.cols = cols;
+    this.xs = xs.clone();
+    this.ys = ys.clone();
+    this.size = xs.length;
+    build();
+  }
+
+  /**
+   * Returns the number of treasures left.
+   *
+   * @return The number of treasures.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Manhattan distance from a cell to the nearest treasure left
+   *
+   * @param x row of the cell
+   * @param y column of the cell
+   * @return the distance, or -1 if every treasure has been found
+   */
+  public int nearestDistance(int x, int y) {
+    if (size == 0) {
+      return -1;
+    }
+
+    long qu = (long) x + y;
+    long qv = (long) x - y;
+    int bu = bucketU(qu);
+    int bv = bucketV(qv);
+    long best = Long.MAX_VALUE;
+    int maxRing = Math.max(bucketsU, bucketsV);
+
+    for (int r = 0; r <= maxRing; r++) {
+      // Everything in ring r is more than (r - 1) * cellSize away
+      if (r > 0 && best <= (long) (r - 1) * cellSize) {
+        break;
+      }
+
+      for (int i = Math.max(0, bu - r); i <= Math.min(bucketsU - 1, bu + r); i++) {
+        if (i == bu - r || i == bu + r) {
+          // Top and bottom rows of the ring: every bucket
+          for (int j = Math.max(0, bv - r); j <= Math.min(bucketsV - 1, bv + r); j++) {
+            best = Math.min(best, nearestInBucket(i * bucketsV + j, x, y));
+          }
+        } else {
+          // Middle rows: only both ends
+          if (bv - r >= 0) {
+            best = Math.min(best, nearestInBucket(i * bucketsV + bv - r, x, y));
+          }
+          if (bv + r < bucketsV) {
+            best = Math.min(best, nearestInBucket(i * bucketsV + bv + r, x, y));
+          }
+        }
+      }
+    }
+
+    return (int) best;
+  }
+
+  /**
+   * Remove the treasure at a cell
+   *
+   * @param x row of the cell
+   * @param y column of the cell
+   * @return whether there was a treasure to remove
+   */
+  public boolean remove(int x, int y) {
+    int bucket = bucketU((long) x + y) * bucketsV + bucketV((long) x - y);
+    int start = bucketStart[bucket];
+    int end = start + bucketCount[bucket];
+
+    for (int k = start; k < end; k++) {
+      int id = entries[k];
+      if (xs[id] == x && ys[id] == y) {
+        // Swap with the last entry of the bucket
+        entries[k] = entries[end - 1];
+        bucketCount[bucket]--;
+        size--;
+
+        // Rebuild once three quarters of the treasures are gone
+        if (size > 0 && size * 4 < builtSize) {
+          compact();
+          build();
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private long nearestInBucket(int bucket, int x, int y) {
+    long best = Long.MAX_VALUE;
+    int start = bucketStart[bucket];
+    int end = start + bucketCount[bucket];
+    for (int k = start; k < end; k++) {
+      int id = entries[k];
+      best = Math.min(best, Math.abs((long) xs[id] - x) + Math.abs((long) ys[id] - y));
+    }
+    return best;
+  }
+
+  // Keep only the treasures still in a bucket, ids become 0 .. size - 1
+  private void compact() {
+    int[] newXs = new int[size];
+    int[] newYs = new int[size];
+    int n = 0;
+    for (int b = 0; b < bucketCount.length; b++) {
+      for (int k = bucketStart[b]; k < bucketStart[b] + bucketCount[b]; k++) {
+        newXs[n] = xs[entries[k]];
+        newYs[n] = ys[entries[k]];
+        n++;
+      }
+    }
+    xs = newXs;
+    ys = newYs;
+  }
+
+  // Counting sort of the treasures into about one bucket per treasure
+  private void build() {
+    // Both u and v span rows + cols - 1 values
+    long span = (long) rows + cols - 1;
+    cellSize = (int) Math.max(1, Math.ceil(span / Math.sqrt(Math.max(1, size))));
+    bucketsU = (int) ((span + cellSize - 1) / cellSize);
+    bucketsV = bucketsU;
+
+    int buckets = bucketsU * bucketsV;
+    bucketStart = new int[buckets + 1];
+    bucketCount = new int[buckets];
+    entries = new int[size];
+
+    int[] bucketOf = new int[size];
+    for (int id = 0; id < size; id++) {
+      bucketOf[id] = bucketU((long) xs[id] + ys[id]) * bucketsV + bucketV((long) xs[id] - ys[id]);
+      bucketCount[bucketOf[id]]++;
+    }
+    for (int b = 0; b < buckets; b++) {
+      bucketStart[b + 1] = bucketStart[b] + bucketCount[b];
+    }
+
+    int[] fill = new int[buckets];
+    for (int id = 0; id < size; id++) {
+      int b = bucketOf[id];
+      entries[bucketStart[b] + fill[b]++] = id;
+    }
+    builtSize = size;
+  }
+
+  // u starts at 0, v starts at -(cols - 1)
+  private int bucketU(long u) {
+    return (int) (u / cellSize);
+  }
+
+  private int bucketV(long v) {
+    return (int) ((v + cols - 1) / cellSize);
+  }
+}
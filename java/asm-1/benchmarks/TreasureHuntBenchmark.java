@@ -0,0 +1,170 @@
+package benchmarks;
+
+import java.awt.Point;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the hot paths of one Treasure Hunt turn:
+ * getManhattanDistance(), validateGuess(), the repeated-guess lookup and
+ * displayGrid(), on square boards from 10x10 to 10k x 10k.
+ *
+ * Every benchmark reports throughput and sampled latency (with percentiles).
+ * Add the GC profiler for allocation rates and save the results as JSON:
+ *
+ *   java -jar target/benchmarks.jar -prof gc -rf json -rff target/jmh-result.json
+ *
+ * The game classes are in the default package, which a named package cannot
+ * import (and JMH does not allow benchmarks in the default package), so they
+ * are reached through method handles. A static final handle called with
+ * invokeExact is inlined by the JIT like a direct call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreasureHuntBenchmark {
+  private static final MethodHandle NEW_GAME;
+  private static final MethodHandle MANHATTAN_DISTANCE;
+  private static final MethodHandle VALIDATE_GUESS;
+  private static final MethodHandle DISPLAY_GRID;
+  private static final MethodHandle GET_GUESSES;
+  private static final MethodHandle GET_GRID;
+  private static final MethodHandle TRACKER_ADD;
+  private static final MethodHandle TRACKER_CONTAINS;
+  private static final MethodHandle GRID_SET;
+
+  // Constants: size of the precomputed probe table (a power of two)
+  private static final int PROBES = 1024;
+  private static final int MAX_GUESSES = 4096;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      Class<?> hunt = Class.forName("TreasureHunt");
+      Class<?> tracker = Class.forName("GuessTracker");
+      Class<?> grid = Class.forName("GridStore");
+
+      Constructor<?> constructor = hunt.getConstructor(int.class, int.class);
+      NEW_GAME = lookup.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class, int.class, int.class));
+
+      MANHATTAN_DISTANCE = lookup.unreflect(accessible(hunt.getDeclaredMethod("getManhattanDistance", Point.class)))
+          .asType(MethodType.methodType(int.class, Object.class, Point.class));
+      VALIDATE_GUESS = lookup.unreflect(accessible(hunt.getDeclaredMethod("validateGuess", Point.class)))
+          .asType(MethodType.methodType(boolean.class, Object.class, Point.class));
+      DISPLAY_GRID = lookup.unreflect(accessible(hunt.getDeclaredMethod("displayGrid")))
+          .asType(MethodType.methodType(void.class, Object.class));
+      GET_GUESSES = lookup.unreflectGetter(accessible(hunt.getDeclaredField("guesses")))
+          .asType(MethodType.methodType(Object.class, Object.class));
+      GET_GRID = lookup.unreflectGetter(accessible(hunt.getDeclaredField("grid")))
+          .asType(MethodType.methodType(Object.class, Object.class));
+
+      TRACKER_ADD = lookup.unreflect(tracker.getMethod("add", int.class, int.class))
+          .asType(MethodType.methodType(boolean.class, Object.class, int.class, int.class));
+      TRACKER_CONTAINS = lookup.unreflect(tracker.getMethod("contains", int.class, int.class))
+          .asType(MethodType.methodType(boolean.class, Object.class, int.class, int.class));
+      GRID_SET = lookup.unreflect(grid.getMethod("set", int.class, int.class, byte.class))
+          .asType(MethodType.methodType(void.class, Object.class, int.class, int.class, byte.class));
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  @Param({ "10", "100", "1000", "10000" })
+  public int size;
+
+  private Object game;
+  private Object guesses;
+  private final Point[] points = new Point[PROBES];
+  private final int[] xs = new int[PROBES];
+  private final int[] ys = new int[PROBES];
+  private int next;
+
+  @Setup
+  public void setUp() throws Throwable {
+    // The renderer keeps the stream it was built with, so build it on a null stream
+    PrintStream stdout = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    try {
+      game = (Object) NEW_GAME.invokeExact(size, size);
+    } finally {
+      System.setOut(stdout);
+    }
+
+    guesses = (Object) GET_GUESSES.invokeExact(game);
+    Object grid = (Object) GET_GRID.invokeExact(game);
+    SplittableRandom random = new SplittableRandom(42);
+
+    // Fill the board like a game in progress: up to half the cells guessed
+    int count = (int) Math.min(MAX_GUESSES, (long) size * size / 2);
+    for (int i = 0; i < count; i++) {
+      int x = random.nextInt(size);
+      int y = random.nextInt(size);
+      if ((boolean) TRACKER_ADD.invokeExact(guesses, x, y)) {
+        GRID_SET.invokeExact(grid, x, y, (byte) 1);
+      }
+    }
+
+    // Probes: mostly on the board, some just outside it
+    for (int i = 0; i < PROBES; i++) {
+      xs[i] = random.nextInt(-1, size + 1);
+      ys[i] = random.nextInt(-1, size + 1);
+      points[i] = new Point(xs[i], ys[i]);
+    }
+  }
+
+  private int nextIndex() {
+    next = (next + 1) & (PROBES - 1);
+    return next;
+  }
+
+  @Benchmark
+  public int manhattanDistance() throws Throwable {
+    return (int) MANHATTAN_DISTANCE.invokeExact(game, points[nextIndex()]);
+  }
+
+  @Benchmark
+  public boolean validateGuess() throws Throwable {
+    return (boolean) VALIDATE_GUESS.invokeExact(game, points[nextIndex()]);
+  }
+
+  @Benchmark
+  public boolean repeatedGuessLookup() throws Throwable {
+    int i = nextIndex();
+    // Clamp so that every probe is a legal cell
+    int x = Math.max(0, Math.min(xs[i], size - 1));
+    int y = Math.max(0, Math.min(ys[i], size - 1));
+    return (boolean) TRACKER_CONTAINS.invokeExact(guesses, x, y);
+  }
+
+  @Benchmark
+  public void displayGrid() throws Throwable {
+    DISPLAY_GRID.invokeExact(game);
+  }
+
+  private static <T extends AccessibleObject> T accessible(T member) {
+    member.setAccessible(true);
+    return member;
+  }
+}
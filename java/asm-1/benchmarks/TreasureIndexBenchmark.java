@@ -0,0 +1,96 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Nearest-treasure queries on a 10k x 10k board: TreasureIndex against a
+ * linear scan over every treasure. See TreasureHuntBenchmark for why the
+ * game classes are reached through method handles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreasureIndexBenchmark {
+  private static final MethodHandle NEW_INDEX;
+  private static final MethodHandle NEAREST_DISTANCE;
+
+  private static final int BOARD = 10_000;
+  private static final int PROBES = 1024;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      Class<?> index = Class.forName("TreasureIndex");
+      NEW_INDEX = lookup.unreflectConstructor(index.getConstructor(int.class, int.class, int[].class, int[].class))
+          .asType(MethodType.methodType(Object.class, int.class, int.class, int[].class, int[].class));
+      NEAREST_DISTANCE = lookup.unreflect(index.getMethod("nearestDistance", int.class, int.class))
+          .asType(MethodType.methodType(int.class, Object.class, int.class, int.class));
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  @Param({ "1000", "10000", "100000" })
+  public int treasures;
+
+  private Object index;
+  private int[] xs;
+  private int[] ys;
+  private final int[] probeXs = new int[PROBES];
+  private final int[] probeYs = new int[PROBES];
+  private int next;
+
+  @Setup
+  public void setUp() throws Throwable {
+    SplittableRandom random = new SplittableRandom(42);
+    xs = new int[treasures];
+    ys = new int[treasures];
+    for (int i = 0; i < treasures; i++) {
+      xs[i] = random.nextInt(BOARD);
+      ys[i] = random.nextInt(BOARD);
+    }
+    index = (Object) NEW_INDEX.invokeExact(BOARD, BOARD, xs, ys);
+
+    for (int i = 0; i < PROBES; i++) {
+      probeXs[i] = random.nextInt(BOARD);
+      probeYs[i] = random.nextInt(BOARD);
+    }
+  }
+
+  @Benchmark
+  public int indexed() throws Throwable {
+    next = (next + 1) & (PROBES - 1);
+    return (int) NEAREST_DISTANCE.invokeExact(index, probeXs[next], probeYs[next]);
+  }
+
+  @Benchmark
+  public int linearScan() {
+    next = (next + 1) & (PROBES - 1);
+    int x = probeXs[next];
+    int y = probeYs[next];
+    int best = Integer.MAX_VALUE;
+    for (int i = 0; i < xs.length; i++) {
+      best = Math.min(best, Math.abs(xs[i] - x) + Math.abs(ys[i] - y));
+    }
+    return best;
+  }
+}
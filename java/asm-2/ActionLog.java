@@ -0,0 +1,266 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Compact recording of a TestClient session: the seed of the power-up
+ * generator, the character chosen and the actions (1, 2 or 3) packed four
+ * per byte, followed by the final state the session ended in.
+ *
+ * With the same seed the character draws the same power-ups, so replaying
+ * the actions rebuilds the session exactly. Comparing the replayed final
+ * state with the recorded one tells whether a rule change affects a
+ * recorded session.
+ *
+ * File layout (big-endian): int magic, int version, long seed, byte character,
+ * long action count, packed actions, then lives, coins, state ordinal,
+ * previous state ordinal and invincible rounds as ints.
+ */
+public class ActionLog {
+  private final long seed;
+  private int character;
+  private byte[] actions;
+  private long count;
+
+  // Final state of the recorded session, see finish()
+  private int lives;
+  private int coins;
+  private int state;
+  private int previousState;
+  private int invincibleRounds;
+
+  // Constants: file format
+  private static final int MAGIC = 0x414c4f47; // "ALOG"
+  private static final int VERSION = 1;
+  private static final int ACTIONS_PER_BYTE = 4;
+  private static final int HEADER_SIZE = 25; // magic to action count
+  private static final int TRAILER_SIZE = 20; // final state
+  private static final int CHARACTERS = 4;
+
+  /**
+   * Initializes an empty log.
+   *
+   * @param seed The seed of the session's power-up generator.
+   */
+  public ActionLog(long seed) {
+    this.seed = seed;
+    this.actions = new byte[64];
+  }
+
+  // Getters
+  /**
+   * Returns the seed of the session's power-up generator.
+   *
+   * @return The seed.
+   */
+  public long getSeed() {
+    return this.seed;
+  }
+
+  /**
+   * Returns the number of recorded actions.
+   *
+   * @return The number of actions.
+   */
+  public long getCount() {
+    return this.count;
+  }
+
+  // Setters
+  /**
+   * Sets the character chosen in the TestClient menu.
+   *
+   * @param character The menu number, 1-4.
+   */
+  public void setCharacter(int character) {
+    this.character = character;
+  }
+
+  // Methods
+  /**
+   * Appends an action.
+   *
+   * @param action 1 (collect coin), 2 (collect power-up) or 3 (hit enemy).
+   */
+  public void add(int action) {
+    int index = (int) (count / ACTIONS_PER_BYTE);
+    if (index == actions.length) {
+      actions = Arrays.copyOf(actions, actions.length * 2);
+    }
+    actions[index] |= (byte) (action << (2 * (count % ACTIONS_PER_BYTE)));
+    count++;
+  }
+
+  /**
+   * Returns the action at the given position.
+   *
+   * @param i The position, between 0 and getCount() - 1.
+   * @return 1, 2 or 3.
+   */
+  public int get(long i) {
+    return (actions[(int) (i / ACTIONS_PER_BYTE)] >> (2 * (i % ACTIONS_PER_BYTE))) & 3;
+  }
+
+  /**
+   * Records the state the session ended in.
+   *
+   * @param player The character of the session.
+   */
+  public void finish(Character player) {
+    this.lives = player.getLives();
+    this.coins = player.getCoins();
+    this.state = player.getState().ordinal();
+    this.previousState = player.getPreviousState().ordinal();
+    this.invincibleRounds = player.getInvincibilityRounds();
+  }
+
+  /**
+   * Whether a character is in the recorded final state.
+   *
+   * @param player The character, e.g. from replay().
+   * @return Whether every field matches.
+   */
+  public boolean matches(Character player) {
+    return player.getLives() == lives && player.getCoins() == coins && player.getState().ordinal() == state
+        && player.getPreviousState().ordinal() == previousState && player.getInvincibilityRounds() == invincibleRounds;
+  }
+
+  /**
+   * Plays the recorded actions again, without printing anything.
+   *
+   * @return The character in its final state.
+   */
+  public Character replay() {
+    Character player = TestClient.createCharacter(character, seed);
+    player.setListener(NoOpGameListener.INSTANCE);
+
+    long i = 0;
+    for (int b = 0; i < count; b++) {
+      int packed = actions[b];
+
+      // Up to four actions per byte
+      for (int k = 0; k < ACTIONS_PER_BYTE && i < count; k++, i++) {
+        switch ((packed >> (2 * k)) & 3) {
+          case 1:
+            player.collectCoin();
+            break;
+
+          case 2:
+            player.collectPowerUp();
+            break;
+
+          default:
+            player.hitEnemy();
+            break;
+        }
+        player.endRound();
+      }
+    }
+
+    return player;
+  }
+
+  /**
+   * Saves the log.
+   *
+   * @param path The file to write.
+   * @throws IOException if the file cannot be written.
+   */
+  public void write(Path path) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(seed);
+      out.writeByte(character);
+      out.writeLong(count);
+      out.write(actions, 0, (int) ((count + ACTIONS_PER_BYTE - 1) / ACTIONS_PER_BYTE));
+      out.writeInt(lives);
+      out.writeInt(coins);
+      out.writeInt(state);
+      out.writeInt(previousState);
+      out.writeInt(invincibleRounds);
+    }
+  }
+
+  /**
+   * Loads a log saved by write().
+   *
+   * @param path The file to read.
+   * @return The log.
+   * @throws IOException if the file cannot be read or is not an action log.
+   */
+  public static ActionLog read(Path path) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException(path + " is not an action log");
+      }
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException(path + " has unsupported version " + version);
+      }
+
+      ActionLog log = new ActionLog(in.readLong());
+      log.character = in.readByte();
+      log.count = in.readLong();
+
+      // Case: Unknown character or more actions than the file holds
+      if (log.character < 1 || log.character > CHARACTERS) {
+        throw new IOException(path + " has unknown character " + log.character);
+      }
+      long payload = Files.size(path) - HEADER_SIZE - TRAILER_SIZE;
+      if (log.count < 0 || log.count > payload * ACTIONS_PER_BYTE) {
+        throw new IOException(path + " has invalid action count " + log.count);
+      }
+
+      log.actions = new byte[(int) Math.max(1, (log.count + ACTIONS_PER_BYTE - 1) / ACTIONS_PER_BYTE)];
+      in.readFully(log.actions, 0, (int) ((log.count + ACTIONS_PER_BYTE - 1) / ACTIONS_PER_BYTE));
+      log.lives = in.readInt();
+      log.coins = in.readInt();
+      log.state = in.readInt();
+      log.previousState = in.readInt();
+      log.invincibleRounds = in.readInt();
+      return log;
+    }
+  }
+
+  /**
+   * Entry point: replay recorded sessions and check their final state.
+   *
+   * @param args The log files.
+   */
+  public static void main(String[] args) {
+    if (args.length == 0) {
+      System.out.println("Usage: java ActionLog <log>...");
+      return;
+    }
+
+    int mismatches = 0;
+    for (String file : args) {
+      try {
+        ActionLog log = read(Path.of(file));
+
+        long start = System.nanoTime();
+        Character player = log.replay();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        boolean match = log.matches(player);
+        mismatches += match ? 0 : 1;
+        System.out.printf("%s: %s rounds in %.3f s (%.0f rounds/s), LIVES: %s COINS: %s STATUS: %s, %s%n", file,
+            log.count, seconds, log.count / seconds, player.getLives(), player.getCoins(), player.getState(),
+            match ? "same final state" : "DIFFERENT final state");
+      } catch (IOException e) {
+        System.out.println("Cannot replay " + file + ": " + e.getMessage());
+        mismatches++;
+      }
+    }
+
+    if (mismatches > 0) {
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,242 @@
+import java.io.ByteArrayOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Queues events in a preallocated ring buffer and hands them to another
+ * listener on a background thread, in batches.
+ *
+ * The thread playing the characters only writes a few fields into the next
+ * slot and publishes it, so it never waits for console I/O; it only spins
+ * when the buffer is full. The character's name, message and game state are
+ * copied into the slot, so the background thread sees the character as it
+ * was when the event happened: the delegate receives a copy, not the
+ * character itself. The background thread drains every published slot at
+ * once and calls flush() after each batch, so a listener writing to a
+ * buffered stream (see ConsoleGameListener) writes once per batch.
+ *
+ * One thread may publish events (single producer); close() delivers what
+ * is left and stops the background thread.
+ *
+ * Reference: https://www.baeldung.com/lmax-disruptor-concurrency
+ */
+public class AsyncGameListener implements GameListener, AutoCloseable {
+  private final GameListener delegate;
+  private final Runnable flush;
+  private final int mask;
+  private final Thread consumer;
+
+  // Slots: type, character (name, message and packed state) and up to two arguments
+  private final byte[] types;
+  private final String[] names;
+  private final String[] messages;
+  private final long[] states;
+  private final Object[] firsts;
+  private final Object[] seconds;
+
+  // Consumer side: one copy per character name, restored before each event
+  private final Map<String, Character> copies = new HashMap<>();
+
+  // Next sequence to publish (producer) and to deliver (consumer)
+  private final AtomicLong published = new AtomicLong();
+  private final AtomicLong delivered = new AtomicLong();
+  private volatile boolean closed;
+
+  // Constants: event types
+  private static final byte ITEM_COLLECTED = 0;
+  private static final byte STATE_CHANGED = 1;
+  private static final byte LIFE_LOST = 2;
+  private static final byte STAR_EXPIRED = 3;
+  private static final byte MESSAGE = 4;
+
+  // Constants: how long the consumer sleeps when the buffer is empty
+  private static final long IDLE_NANOS = 100_000;
+
+  private static final GameState[] STATES = GameState.values();
+
+  // Shared by every console() sink, so that their batches never interleave
+  private static final FileOutputStream STDOUT = new FileOutputStream(FileDescriptor.out);
+
+  /**
+   * Initializes a sink and starts its background thread.
+   *
+   * @param delegate The listener receiving the events on the background thread.
+   * @param flush    Called after each batch, e.g. to flush a buffered stream.
+   * @param capacity The number of slots, rounded up to a power of two.
+   */
+  public AsyncGameListener(GameListener delegate, Runnable flush, int capacity) {
+    int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    this.delegate = delegate;
+    this.flush = flush;
+    this.mask = size - 1;
+    this.types = new byte[size];
+    this.names = new String[size];
+    this.messages = new String[size];
+    this.states = new long[size];
+    this.firsts = new Object[size];
+    this.seconds = new Object[size];
+
+    this.consumer = new Thread(this::drainLoop, "game-listener");
+    this.consumer.setDaemon(true);
+    this.consumer.start();
+  }
+
+  /**
+   * Creates a sink printing today's console text in batches on the standard
+   * output. Each batch is collected in memory, then written in one call
+   * under a lock shared by every console sink, so the sinks of several
+   * workers only interleave whole batches, never parts of lines.
+   *
+   * @param capacity The number of slots.
+   * @return The sink, to close at the end of the run.
+   */
+  public static AsyncGameListener console(int capacity) {
+    ByteArrayOutputStream batch = new ByteArrayOutputStream(1 << 16);
+    PrintStream out = new PrintStream(batch, false);
+    return new AsyncGameListener(new ConsoleGameListener(out), () -> {
+      out.flush();
+      synchronized (STDOUT) {
+        try {
+          batch.writeTo(STDOUT);
+        } catch (IOException e) {
+          // Standard output closed, nothing left to print to
+        }
+      }
+      batch.reset();
+    }, capacity);
+  }
+
+  public void itemCollected(Character character, PowerUpItem item) {
+    publish(ITEM_COLLECTED, character, item, null);
+  }
+
+  public void stateChanged(Character character, GameState from, GameState to) {
+    publish(STATE_CHANGED, character, from, to);
+  }
+
+  public void lifeLost(Character character) {
+    publish(LIFE_LOST, character, null, null);
+  }
+
+  public void starExpired(Character character) {
+    publish(STAR_EXPIRED, character, null, null);
+  }
+
+  public void message(Character character, String text) {
+    publish(MESSAGE, character, text, null);
+  }
+
+  /**
+   * Delivers every queued event, then stops the background thread.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    LockSupport.unpark(consumer);
+    try {
+      consumer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void publish(byte type, Character character, Object first, Object second) {
+    long sequence = published.get();
+
+    // Case: Buffer full - wait for the consumer to free a slot
+    while (sequence - delivered.get() > mask) {
+      Thread.onSpinWait();
+    }
+
+    int slot = (int) sequence & mask;
+    types[slot] = type;
+    names[slot] = character.getName();
+    messages[slot] = character.getMessage();
+    states[slot] = pack(character);
+    firsts[slot] = first;
+    seconds[slot] = second;
+
+    // Release: the slot is visible before the new sequence
+    published.lazySet(sequence + 1);
+  }
+
+  private void drainLoop() {
+    long next = 0;
+
+    while (true) {
+      long end = published.get();
+
+      // Case: Nothing to deliver - stop once closed, else sleep a little
+      if (next == end) {
+        if (closed && next == published.get()) {
+          return;
+        }
+        LockSupport.parkNanos(IDLE_NANOS);
+        continue;
+      }
+
+      for (long sequence = next; sequence < end; sequence++) {
+        deliver((int) sequence & mask);
+      }
+      flush.run();
+
+      next = end;
+      delivered.lazySet(next);
+    }
+  }
+
+  private void deliver(int slot) {
+    Character character = copies.computeIfAbsent(names[slot], name -> {
+      Character copy = Character.named(name, messages[slot]);
+      copy.setListener(NoOpGameListener.INSTANCE);
+      return copy;
+    });
+    restore(character, states[slot]);
+
+    switch (types[slot]) {
+      case ITEM_COLLECTED:
+        delegate.itemCollected(character, (PowerUpItem) firsts[slot]);
+        break;
+
+      case STATE_CHANGED:
+        delegate.stateChanged(character, (GameState) firsts[slot], (GameState) seconds[slot]);
+        break;
+
+      case LIFE_LOST:
+        delegate.lifeLost(character);
+        break;
+
+      case STAR_EXPIRED:
+        delegate.starExpired(character);
+        break;
+
+      default:
+        delegate.message(character, (String) firsts[slot]);
+        break;
+    }
+
+    // Let the arguments be collected
+    firsts[slot] = null;
+    seconds[slot] = null;
+  }
+
+  // Packing, like CharacterHistory: lives, coins, state, previous state, invincible rounds
+  private static long pack(Character character) {
+    return (character.getLives() & 0xffffffffL)
+        | ((long) (character.getCoins() & 0xff) << 32)
+        | ((long) character.getState().ordinal() << 40)
+        | ((long) character.getPreviousState().ordinal() << 44)
+        | ((long) (character.getInvincibilityRounds() & 0xff) << 48);
+  }
+
+  private static void restore(Character character, long packed) {
+    character.restore((int) packed, (int) ((packed >>> 32) & 0xff), STATES[(int) ((packed >>> 40) & 0xf)],
+        STATES[(int) ((packed >>> 44) & 0xf)], (int) ((packed >>> 48) & 0xff));
+  }
+}
@@ -1,3 +1,6 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
 /**
  * Since I have experience on using enums in other languages, I decided to use them here.
  * It is more readable and easier to manage.
@@ -16,12 +19,24 @@ public class Character {
   private int lives;
   private GameState previousState;
   private int invincibleRounds;
-
-  private static final GameState INITIAL_STATE = GameState.SMALL;
-  private static final int INITIAL_COINS = 0;
-  private static final int INITIAL_LIVES = 3;
+  // Receives the messages and events, the console by default
+  private GameListener listener;
+  // Draws the power-ups, null for the generator of the calling thread
+  private RandomGenerator random;
+  // Expiry of the star on a shared wheel, null when counting down in endRound()
+  private TimerWheel<Character> timers;
+  private TimerWheel.Timer<Character> starTimer;
+
+  // Package-private so that CharacterPool starts from the same values
+  static final GameState INITIAL_STATE = GameState.SMALL;
+  static final int INITIAL_COINS = 0;
+  static final int INITIAL_LIVES = 3;
   // +1 for the star power-up
-  private static final int INITIAL_INVINCIBLE_ROUNDS = 3 + 1;
+  static final int INITIAL_INVINCIBLE_ROUNDS = 3 + 1;
+  // Every 5 coins are traded for a life
+  static final int COINS_PER_LIFE = 5;
+
+  private static final TimerWheel.Effect<Character> STAR_EXPIRY = character -> character.handleEvent(GameEvent.STAR_EXPIRED);
 
   /**
    * Initializes a new character with the given name and message,
@@ -39,6 +54,54 @@ public class Character {
     this.lives = INITIAL_LIVES;
     this.previousState = INITIAL_STATE;
     this.invincibleRounds = INITIAL_INVINCIBLE_ROUNDS;
+    this.listener = ConsoleGameListener.INSTANCE;
+  }
+
+  /**
+   * Creates a character from its name: Mario, Luigi, Peach and Toad get
+   * their own class, any other name a plain Character with the given message.
+   *
+   * @param name    The name of the character.
+   * @param message The message, used for other names.
+   * @return The new character.
+   */
+  static Character named(String name, String message) {
+    switch (name) {
+      case "Mario":
+        return new Mario();
+
+      case "Luigi":
+        return new Luigi();
+
+      case "Peach":
+        return new Peach();
+
+      case "Toad":
+        return new Toad();
+
+      default:
+        return new Character(name, message);
+    }
+  }
+
+  /**
+   * Sets every field of the game state at once, e.g. from a snapshot.
+   * On a timer wheel, the star timer is rescheduled to match.
+   */
+  void restore(int lives, int coins, GameState state, GameState previousState, int invincibleRounds) {
+    this.lives = lives;
+    this.coins = coins;
+    this.state = state;
+    this.previousState = previousState;
+    this.invincibleRounds = invincibleRounds;
+
+    if (this.timers != null) {
+      if (state == GameState.INVINCIBLE && invincibleRounds > 0) {
+        this.timers.schedule(this.starTimer, invincibleRounds);
+      } else {
+        this.timers.cancel(this.starTimer);
+      }
+    }
   }
 
   // Getters
@@ -97,12 +160,24 @@ public class Character {
     return this.previousState;
   }
 
+  /**
+   * Returns the listener receiving the character's messages and events.
+   *
+   * @return The GameListener.
+   */
+  public GameListener getListener() {
+    return this.listener;
+  }
+
   /**
    * Returns the remaining number of rounds the character is invincible.
    *
    * @return The number of remaining invincible rounds.
    */
   public int getInvincibilityRounds() {
+    if (this.timers != null && this.starTimer.isScheduled()) {
+      return (int) (this.starTimer.getDeadline() - this.timers.now());
+    }
     return this.invincibleRounds;
   }
 
@@ -125,6 +200,38 @@ public class Character {
     this.invincibleRounds = invincibleRounds;
   }
 
+  /**
+   * Sets the listener receiving the character's messages and events,
+   * e.g. NoOpGameListener.INSTANCE for headless runs.
+   *
+   * @param listener The listener.
+   */
+  public void setListener(GameListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Sets the generator that collectPowerUp() draws from, e.g. a seeded one
+   * so that a session can be replayed.
+   *
+   * @param random The generator, or null for the generator of the calling thread.
+   */
+  public void setRandom(RandomGenerator random) {
+    this.random = random;
+  }
+
+  /**
+   * Makes the star wear off through a timer on the given wheel instead of
+   * counting down in endRound(): advancing the wheel once per round then
+   * replaces calling endRound() on every character.
+   *
+   * @param timers The wheel shared by the characters of a game.
+   */
+  public void useTimers(TimerWheel<Character> timers) {
+    this.timers = timers;
+    this.starTimer = new TimerWheel.Timer<>(STAR_EXPIRY, this);
+  }
+
   /**
    * Resets the number of invincibility rounds to its initial value.
    */
@@ -140,50 +247,37 @@ public class Character {
   public void collectCoin() {
     coins += 1;
 
-    if (coins % 5 == 0) {
+    if (coins % COINS_PER_LIFE == 0) {
       lives += 1;
       coins = 0;
     }
   }
 
   /**
-   * Randomly selects a power-up item (OneUpMushroom, SuperMushroom, Flower, Star),
+   * Randomly selects a shared power-up item (OneUpMushroom, SuperMushroom, Flower, Star),
    * prints its name and dialogue, and applies its effect to the character.
-   * Saves the previous state if a Star is collected.
+   *
+   * @return The power-up collected.
    */
-  public void collectPowerUp() {
-    PowerUpItem powerUpItem = null;
-
-    // random number between 0 and 3 (inclusive)
-    int randomNumber = (int) (Math.random() * 4);
-
-    // switch case to determine which power-up item is collected
-    switch (randomNumber) {
-      case 0:
-        powerUpItem = new OneUpMushroom(this);
-        break;
-
-      case 1:
-        powerUpItem = new SuperMushroom(this);
-        break;
-
-      case 2:
-        powerUpItem = new Flower(this);
-        break;
-
-      case 3:
-        this.previousState = this.state;
-        this.invincibleRounds = INITIAL_INVINCIBLE_ROUNDS;
-        powerUpItem = new Star(this);
-        break;
-    }
+  public PowerUpItem collectPowerUp() {
+    // The generator of this character, or of this thread instead of the one shared by Math.random()
+    return collectPowerUp(random != null ? random : ThreadLocalRandom.current());
+  }
 
-    if (powerUpItem != null) {
-      System.out.printf("%s collected a %s\n", this.getName(), powerUpItem.getName());
-      System.out.println(powerUpItem.getDialogue());
+  /**
+   * Same as collectPowerUp(), drawing the item from the given generator.
+   *
+   * @param random The generator, e.g. one per simulation thread.
+   * @return The power-up collected.
+   */
+  public PowerUpItem collectPowerUp(RandomGenerator random) {
+    // Weighted draw from the current catalog, by default the four items with equal weights
+    PowerUpItem powerUpItem = PowerUpCatalog.current().sample(random);
 
-      powerUpItem.applyEffect();
-    }
+    listener.itemCollected(this, powerUpItem);
+
+    powerUpItem.applyEffect(this);
+    return powerUpItem;
   }
 
   /**
@@ -193,31 +287,72 @@ public class Character {
    * - If INVINCIBLE, takes no damage.
    */
   public void hitEnemy() {
-    System.out.println("Oh enemy!");
+    handleEvent(GameEvent.HIT_ENEMY);
+  }
+
+  /**
+   * Ends a round: an invincible character counts one round down and
+   * goes back to its previous state when the star wears off.
+   * Characters using a TimerWheel (see useTimers()) skip the count.
+   */
+  public void endRound() {
+    handleEvent(GameEvent.ROUND_END);
+  }
+
+  /**
+   * Moves the character to its next state through the transition table,
+   * printing the messages and applying the side effects of the transition.
+   *
+   * @param event The event that happened to the character.
+   */
+  public void handleEvent(GameEvent event) {
+    StateTransitions.Transition transition = StateTransitions.get(this.state, event);
+
+    for (String message : transition.messages) {
+      listener.message(this, message);
+    }
 
-    switch (this.state) {
-      case SMALL:
-        System.out.println("Mama mia! I lost a life!");
-        this.lives -= 1;
-        break;
+    GameState from = this.state;
+    int effects = transition.effects;
+    if (effects == 0) {
+      this.state = transition.next;
+      if (from != this.state) {
+        listener.stateChanged(this, from, this.state);
+      }
+      return;
+    }
 
-      case BIG:
-        System.out.println("Ooops! I become small.");
-        this.state = GameState.SMALL;
-        break;
+    if ((effects & StateTransitions.LOSE_LIFE) != 0) {
+      this.lives -= 1;
+      listener.lifeLost(this);
+    }
+    if ((effects & StateTransitions.GAIN_LIFE) != 0) {
+      this.lives += 1;
+    }
+    if ((effects & StateTransitions.SAVE_PREVIOUS_STATE) != 0) {
+      this.previousState = this.state;
+    }
+    if ((effects & StateTransitions.RESET_INVINCIBILITY) != 0) {
+      this.invincibleRounds = INITIAL_INVINCIBLE_ROUNDS;
+    }
 
-      case FIRE:
-        System.out.println("Oh yeah! I kill the enemy!");
-        System.out.println("Ooops! I become small.");
-        this.state = GameState.SMALL;
-        break;
+    this.state = (effects & StateTransitions.RESTORE_PREVIOUS_STATE) != 0 ? this.previousState : transition.next;
+    if (from != this.state) {
+      listener.stateChanged(this, from, this.state);
+    }
+    if (event == GameEvent.STAR_EXPIRED) {
+      listener.starExpired(this);
+    }
 
-      case INVINCIBLE:
-        System.out.println("Woohoo!");
-        break;
+    if ((effects & StateTransitions.START_STAR_TIMER) != 0 && this.timers != null) {
+      this.timers.schedule(this.starTimer, INITIAL_INVINCIBLE_ROUNDS);
+    }
 
-      default:
-        break;
+    if ((effects & StateTransitions.COUNT_DOWN_INVINCIBILITY) != 0 && this.timers == null) {
+      this.invincibleRounds -= 1;
+      if (this.invincibleRounds == 0) {
+        handleEvent(GameEvent.STAR_EXPIRED);
+      }
     }
   }
 
@@ -229,17 +364,17 @@ public class Character {
   // Other unused methods
   // Simulates the character jumping.
   public void jump() {
-    System.out.println("Jump!");
+    listener.message(this, "Jump!");
   }
 
   // Simulates the character running.
   public void run() {
-    System.out.println("Run!");
+    listener.message(this, "Run!");
   }
 
   // Simulates the character moving.
   public void move() {
-    System.out.println("Move!");
+    listener.message(this, "Move!");
   }
 }
 
@@ -262,7 +397,7 @@ class Peach extends Character {
 
   // Simulates Peach floating in the air.
   public void floatInAir() {
-    System.out.println("I'm floating in the air!");
+    getListener().message(this, "I'm floating in the air!");
   }
 }
 
@@ -273,6 +408,6 @@ class Toad extends Character {
 
   // Simulates Toad revealing a hidden item.
   public void revealHiddenItem() {
-    System.out.println("I'm revealing a hidden item!");
+    getListener().message(this, "I'm revealing a hidden item!");
   }
 }
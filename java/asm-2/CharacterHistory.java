@@ -0,0 +1,344 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The history of a character, one compact event per round, with snapshots.
+ *
+ * Every round of the TestClient loop is stored as one byte: a coin, an
+ * enemy, or the effect of the power-up collected (so replaying needs no
+ * generator). Every interval rounds, the state reached is stored as a
+ * snapshot packed into a long. The state at any round is the snapshot at
+ * or before it, found by division, plus at most interval - 1 rounds of
+ * replay on a scratch character.
+ *
+ * Events and snapshots live in ring buffers that grow up to a capacity;
+ * past it, the oldest interval of rounds is dropped at a time, so a session
+ * of millions of rounds keeps the last capacity rounds in capacity bytes
+ * plus one long per interval.
+ *
+ * rewind() and undo() move the character back and forget the rounds after,
+ * so new rounds are recorded from there. The history replays with the
+ * star counting down in endRound(), which gives the same states as a timer
+ * wheel advanced once per round.
+ *
+ * Reference: https://martinfowler.com/eaaDev/EventSourcing.html
+ */
+public class CharacterHistory {
+  private final Character character;
+  private final int interval;
+  private final int capacity;
+
+  // events[round & mask]: what happened during round (0-based)
+  private byte[] events;
+  // snapshots[(round / interval) % length]: the state reached after round rounds
+  private long[] snapshots;
+  // Rounds first (a multiple of interval) to end are known
+  private long first;
+  private long end;
+
+  // Replays the recorded events, so that snapshots do not depend on timers
+  private final Character shadow;
+
+  // Constants: codes of the rounds other than an event of the transition table
+  private static final byte COIN = (byte) GameEvent.values().length;
+
+  private static final GameEvent[] EVENTS = GameEvent.values();
+  private static final GameState[] STATES = GameState.values();
+
+  private static final int DEFAULT_INTERVAL = 256;
+  private static final int DEFAULT_CAPACITY = 1 << 24;
+  private static final int INITIAL_SIZE = 1 << 12;
+
+  /**
+   * Starts the history of a character from its current state, keeping the
+   * last 2^24 rounds with a snapshot every 256 rounds.
+   *
+   * @param character The character.
+   */
+  public CharacterHistory(Character character) {
+    this(character, DEFAULT_INTERVAL, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Starts the history of a character from its current state.
+   *
+   * @param character The character.
+   * @param interval  The number of rounds between snapshots, a power of two.
+   * @param capacity  The number of rounds kept, a power of two of at least interval.
+   */
+  public CharacterHistory(Character character, int interval, int capacity) {
+    if (Integer.bitCount(interval) != 1 || Integer.bitCount(capacity) != 1 || capacity < interval) {
+      throw new IllegalArgumentException("interval and capacity should be powers of two, capacity >= interval");
+    }
+    this.character = character;
+    this.interval = interval;
+    this.capacity = capacity;
+    this.events = new byte[Math.min(capacity, Math.max(interval, INITIAL_SIZE))];
+    this.snapshots = new long[events.length / interval + 1];
+
+    this.shadow = Character.named(character.getName(), character.getMessage());
+    this.shadow.setListener(NoOpGameListener.INSTANCE);
+    restore(shadow, pack(character));
+    this.snapshots[0] = pack(shadow);
+  }
+
+  // Getters
+  /**
+   * Returns the number of rounds recorded, which is also the last round
+   * whose state is known.
+   *
+   * @return The number of rounds.
+   */
+  public long rounds() {
+    return end;
+  }
+
+  /**
+   * Returns the first round whose state is still known.
+   *
+   * @return 0 until older rounds are dropped.
+   */
+  public long oldestRound() {
+    return first;
+  }
+
+  /**
+   * Returns the number of bytes of the events and snapshots.
+   *
+   * @return The size of the buffers.
+   */
+  public long memoryBytes() {
+    return events.length + (long) snapshots.length * Long.BYTES;
+  }
+
+  // Methods
+  /**
+   * Records a round of the TestClient loop: the action, then the end of
+   * the round.
+   *
+   * @param action The menu number: (1) coin, (2) power-up, (3) enemy.
+   * @param item   The power-up collected, for action 2.
+   */
+  public void record(int action, PowerUpItem item) {
+    byte code;
+    switch (action) {
+      case 1:
+        code = COIN;
+        break;
+
+      case 2:
+        code = (byte) item.getEvent().ordinal();
+        break;
+
+      default:
+        code = (byte) GameEvent.HIT_ENEMY.ordinal();
+        break;
+    }
+
+    // Case: Full - forget the oldest interval of rounds
+    if (end - first == capacity) {
+      first += interval;
+    } else if (end - first == events.length) {
+      grow();
+    }
+
+    events[(int) (end & (events.length - 1))] = code;
+    play(shadow, code);
+    end++;
+
+    if (end % interval == 0) {
+      snapshots[snapshotIndex(end)] = pack(shadow);
+    }
+  }
+
+  /**
+   * Rebuilds the character as it was after the given number of rounds.
+   *
+   * @param round Between oldestRound() and rounds().
+   * @return A new character with that state, reporting to NoOpGameListener.
+   */
+  public Character at(long round) {
+    Character copy = Character.named(character.getName(), character.getMessage());
+    copy.setListener(NoOpGameListener.INSTANCE);
+    restore(copy, stateAt(round));
+    return copy;
+  }
+
+  /**
+   * Moves the character back to its state after the given number of
+   * rounds and forgets the rounds after it.
+   *
+   * @param round Between oldestRound() and rounds().
+   */
+  public void rewind(long round) {
+    long state = stateAt(round);
+    end = round;
+    restore(shadow, state);
+    restore(character, state);
+  }
+
+  /**
+   * Cancels the last round.
+   *
+   * @return Whether there was a round to cancel.
+   */
+  public boolean undo() {
+    if (end == first) {
+      return false;
+    }
+    rewind(end - 1);
+    return true;
+  }
+
+  // The snapshot at or before the round, then the rounds in between
+  private long stateAt(long round) {
+    if (round < first || round > end) {
+      throw new IllegalArgumentException("Round " + round + " is not between " + first + " and " + end);
+    }
+
+    long base = round - round % interval;
+    Character scratch = Character.named(character.getName(), character.getMessage());
+    scratch.setListener(NoOpGameListener.INSTANCE);
+    restore(scratch, snapshots[snapshotIndex(base)]);
+    for (long r = base; r < round; r++) {
+      play(scratch, events[(int) (r & (events.length - 1))]);
+    }
+    return pack(scratch);
+  }
+
+  private static void play(Character character, byte code) {
+    if (code == COIN) {
+      character.collectCoin();
+    } else {
+      character.handleEvent(EVENTS[code]);
+    }
+    character.endRound();
+  }
+
+  private int snapshotIndex(long round) {
+    return (int) ((round / interval) % snapshots.length);
+  }
+
+  // Doubles the buffers, keeping every round at its place modulo the new size
+  private void grow() {
+    byte[] biggerEvents = new byte[events.length * 2];
+    for (long r = first; r < end; r++) {
+      biggerEvents[(int) (r & (biggerEvents.length - 1))] = events[(int) (r & (events.length - 1))];
+    }
+
+    long[] biggerSnapshots = new long[biggerEvents.length / interval + 1];
+    for (long r = first; r <= end; r += interval) {
+      biggerSnapshots[(int) ((r / interval) % biggerSnapshots.length)] = snapshots[snapshotIndex(r)];
+    }
+
+    events = biggerEvents;
+    snapshots = biggerSnapshots;
+  }
+
+  // Packing, like ConcurrentCharacter: lives, coins, state, previous state, invincible rounds
+  private static long pack(Character character) {
+    return (character.getLives() & 0xffffffffL)
+        | ((long) character.getCoins() << 32)
+        | ((long) character.getState().ordinal() << 40)
+        | ((long) character.getPreviousState().ordinal() << 44)
+        | ((long) character.getInvincibilityRounds() << 48);
+  }
+
+  private static void restore(Character character, long packed) {
+    character.restore((int) packed, (int) ((packed >>> 32) & 0xff), STATES[(int) ((packed >>> 40) & 0xf)],
+        STATES[(int) ((packed >>> 44) & 0xf)], (int) ((packed >>> 48) & 0xff));
+  }
+
+  /**
+   * Entry point: records a long session, then checks and times queries,
+   * undo and rewind against the states seen while playing.
+   *
+   * @param args [rounds] [capacity]
+   */
+  public static void main(String[] args) {
+    int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+    int capacity = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CAPACITY;
+
+    // Lives never run out, so the session lasts
+    SplittableRandom random = new SplittableRandom(42);
+    Character player = new Luigi();
+    player.setListener(NoOpGameListener.INSTANCE);
+    player.restore(Integer.MAX_VALUE / 2, 0, GameState.SMALL, GameState.SMALL, Character.INITIAL_INVINCIBLE_ROUNDS);
+    CharacterHistory history = new CharacterHistory(player, DEFAULT_INTERVAL, capacity);
+
+    // The state after some rounds, to compare with the queries
+    int checks = 10_000;
+    long[] checkRounds = new long[checks];
+    long[] expected = new long[checks];
+    long keptFrom = Math.max(0, rounds - capacity + DEFAULT_INTERVAL);
+    for (int i = 0; i < checks; i++) {
+      checkRounds[i] = keptFrom + random.nextLong(rounds - keptFrom + 1);
+    }
+    Arrays.sort(checkRounds);
+
+    long start = System.nanoTime();
+    int next = 0;
+    for (long round = 0; round <= rounds; round++) {
+      while (next < checks && checkRounds[next] == round) {
+        expected[next++] = pack(player);
+      }
+      if (round == rounds) {
+        break;
+      }
+
+      int action = 1 + random.nextInt(3);
+      PowerUpItem item = null;
+      switch (action) {
+        case 1:
+          player.collectCoin();
+          break;
+
+        case 2:
+          item = player.collectPowerUp(random);
+          break;
+
+        default:
+          player.hitEnemy();
+          break;
+      }
+      player.endRound();
+      history.record(action, item);
+    }
+    long recordNanos = System.nanoTime() - start;
+
+    // Point-in-time queries, in random order
+    int mismatches = 0;
+    start = System.nanoTime();
+    for (int n = 0; n < checks; n++) {
+      int i = random.nextInt(checks);
+      if (pack(history.at(checkRounds[i])) != expected[i]) {
+        mismatches++;
+      }
+    }
+    long queryNanos = System.nanoTime() - start;
+
+    // Undo the last rounds one by one, then rewind to the earliest check
+    int undone = 0;
+    for (int i = checks - 1; i >= checks - 100; i--) {
+      while (history.rounds() > checkRounds[i]) {
+        history.undo();
+        undone++;
+      }
+      if (pack(player) != expected[i]) {
+        mismatches++;
+      }
+    }
+    history.rewind(checkRounds[0]);
+    if (pack(player) != expected[0]) {
+      mismatches++;
+    }
+
+    System.out.printf("Recorded %s rounds in %.3f s (%.1f M rounds/s), keeping rounds %s-%s in %.1f MB%n", rounds,
+        recordNanos / 1e9, rounds / (recordNanos / 1e3), history.oldestRound(), rounds, history.memoryBytes() / 1e6);
+    System.out.printf("%s point-in-time queries: %.2f us each%n", checks, queryNanos / 1e3 / checks);
+    System.out.printf("Undid %s rounds, rewound to round %s: %s mismatches%n", undone, checkRounds[0], mismatches);
+    if (mismatches > 0) {
+      System.exit(1);
+    }
+  }
+}
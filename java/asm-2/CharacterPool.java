@@ -0,0 +1,373 @@
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Columnar storage of many characters, without names or messages.
+ *
+ * Character i is lives[i], coins[i], state[i], previousState[i] and
+ * invincibleRounds[i]: one primitive array per field instead of one object
+ * per character, so millions of characters cost a few bytes each and the
+ * bulk operations below are tight loops over contiguous arrays.
+ *
+ * State changes go through the same StateTransitions table as Character,
+ * flattened into primitive arrays, so a pool character behaves exactly like
+ * a Character receiving the same actions and the same power-up draws.
+ * Coins and the count down of the end of a round are branch-free loops the
+ * JIT can vectorise; enemies are branch-free too, with two small lookups per
+ * character; only power-ups, drawn one by one, go through the whole table.
+ * Like Character, the bulk operations apply to every character, including
+ * those without lives left; playRound() is the one that skips them, like
+ * the TestClient loop ending at game over.
+ */
+public class CharacterPool {
+  private final int size;
+  private final int[] lives;
+  private final int[] coins;
+  private final byte[] state;
+  private final byte[] previousState;
+  private final int[] invincibleRounds;
+  // playRound(): the action of each character, 0 once it has no lives left
+  private byte[] playing;
+
+  // Constants: actions of playRound(), numbered like the TestClient menu
+  public static final byte COLLECT_COIN = 1;
+  public static final byte COLLECT_POWER_UP = 2;
+  public static final byte HIT_ENEMY = 3;
+
+  private static final GameState[] STATES = GameState.values();
+
+  // StateTransitions flattened: cell = state * EVENTS + event
+  private static final int EVENTS = GameEvent.values().length;
+  private static final byte[] NEXT_STATE;
+  private static final int[] EFFECTS;
+
+  private static final int STAR_EXPIRED_EVENT = GameEvent.STAR_EXPIRED.ordinal();
+  private static final byte INVINCIBLE = (byte) GameState.INVINCIBLE.ordinal();
+
+  // Any action other than a coin or a power-up is an enemy, like in the TestClient loop
+  private static final byte[] ACTION_CODES = new byte[256];
+
+  // The HIT_ENEMY column of the table, as [hit * STATES + state]: row 0 leaves a character as it is
+  private static final byte[] HIT_NEXT_STATE;
+  private static final int[] HIT_LIVES;
+
+  static {
+    NEXT_STATE = new byte[STATES.length * EVENTS];
+    EFFECTS = new int[STATES.length * EVENTS];
+    Arrays.fill(ACTION_CODES, HIT_ENEMY);
+    ACTION_CODES[COLLECT_COIN] = COLLECT_COIN;
+    ACTION_CODES[COLLECT_POWER_UP] = COLLECT_POWER_UP;
+
+    HIT_NEXT_STATE = new byte[2 * STATES.length];
+    HIT_LIVES = new int[2 * STATES.length];
+    for (GameState state : STATES) {
+      for (GameEvent event : GameEvent.values()) {
+        StateTransitions.Transition transition = StateTransitions.get(state, event);
+        NEXT_STATE[state.ordinal() * EVENTS + event.ordinal()] = (byte) transition.next.ordinal();
+        EFFECTS[state.ordinal() * EVENTS + event.ordinal()] = transition.effects;
+      }
+
+      // endRoundAll() hardcodes the end of a round: only INVINCIBLE counts down, nothing else changes
+      StateTransitions.Transition roundEnd = StateTransitions.get(state, GameEvent.ROUND_END);
+      int expected = state == GameState.INVINCIBLE ? StateTransitions.COUNT_DOWN_INVINCIBILITY : 0;
+      if (roundEnd.next != state || roundEnd.effects != expected) {
+        throw new IllegalStateException("endRoundAll() does not match the ROUND_END transition of " + state);
+      }
+
+      // Enemies only move the state and the lives, which the two lookups of hitEnemyAll() cover
+      StateTransitions.Transition hit = StateTransitions.get(state, GameEvent.HIT_ENEMY);
+      if ((hit.effects & ~(StateTransitions.LOSE_LIFE | StateTransitions.GAIN_LIFE)) != 0) {
+        throw new IllegalStateException("hitEnemyAll() does not match the HIT_ENEMY transition of " + state);
+      }
+      HIT_NEXT_STATE[state.ordinal()] = (byte) state.ordinal();
+      HIT_NEXT_STATE[STATES.length + state.ordinal()] = (byte) hit.next.ordinal();
+      HIT_LIVES[STATES.length + state.ordinal()] = ((hit.effects & StateTransitions.GAIN_LIFE) != 0 ? 1 : 0)
+          - ((hit.effects & StateTransitions.LOSE_LIFE) != 0 ? 1 : 0);
+    }
+  }
+
+  /**
+   * Initializes a pool of characters, all with the initial values of Character.
+   *
+   * @param size The number of characters.
+   */
+  public CharacterPool(int size) {
+    this.size = size;
+    this.lives = new int[size];
+    this.coins = new int[size];
+    this.state = new byte[size];
+    this.previousState = new byte[size];
+    this.invincibleRounds = new int[size];
+
+    Arrays.fill(lives, Character.INITIAL_LIVES);
+    Arrays.fill(coins, Character.INITIAL_COINS);
+    Arrays.fill(state, (byte) Character.INITIAL_STATE.ordinal());
+    Arrays.fill(previousState, (byte) Character.INITIAL_STATE.ordinal());
+    Arrays.fill(invincibleRounds, Character.INITIAL_INVINCIBLE_ROUNDS);
+  }
+
+  /**
+   * Initializes a pool over existing columns, e.g. restored by CharacterSnapshot.
+   * The arrays are used as they are, not copied.
+   */
+  CharacterPool(int[] lives, int[] coins, byte[] state, byte[] previousState, int[] invincibleRounds) {
+    this.size = lives.length;
+    this.lives = lives;
+    this.coins = coins;
+    this.state = state;
+    this.previousState = previousState;
+    this.invincibleRounds = invincibleRounds;
+  }
+
+  // Columns, for CharacterSnapshot
+  int[] livesColumn() {
+    return lives;
+  }
+
+  int[] coinsColumn() {
+    return coins;
+  }
+
+  byte[] stateColumn() {
+    return state;
+  }
+
+  byte[] previousStateColumn() {
+    return previousState;
+  }
+
+  int[] invincibleRoundsColumn() {
+    return invincibleRounds;
+  }
+
+  // Getters
+  /**
+   * Returns the number of characters.
+   *
+   * @return The size of the pool.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the number of lives of character i.
+   *
+   * @param i The index of the character.
+   * @return The number of lives.
+   */
+  public int getLives(int i) {
+    return this.lives[i];
+  }
+
+  /**
+   * Returns the number of coins of character i.
+   *
+   * @param i The index of the character.
+   * @return The number of coins.
+   */
+  public int getCoins(int i) {
+    return this.coins[i];
+  }
+
+  /**
+   * Returns the current game state of character i.
+   *
+   * @param i The index of the character.
+   * @return The current GameState.
+   */
+  public GameState getState(int i) {
+    return STATES[this.state[i]];
+  }
+
+  /**
+   * Returns the state of character i before becoming invincible.
+   *
+   * @param i The index of the character.
+   * @return The previous GameState.
+   */
+  public GameState getPreviousState(int i) {
+    return STATES[this.previousState[i]];
+  }
+
+  /**
+   * Returns the remaining number of invincible rounds of character i.
+   *
+   * @param i The index of the character.
+   * @return The number of remaining invincible rounds.
+   */
+  public int getInvincibilityRounds(int i) {
+    return this.invincibleRounds[i];
+  }
+
+  /**
+   * Returns the number of characters with lives left.
+   *
+   * @return The number of characters still playing.
+   */
+  public int countAlive() {
+    int alive = 0;
+    for (int i = 0; i < size; i++) {
+      alive += lives[i] > 0 ? 1 : 0;
+    }
+    return alive;
+  }
+
+  // Bulk operations
+  /**
+   * Every character collects a coin, like Character.collectCoin().
+   * Coins stay below COINS_PER_LIFE, so the bonus is a compare instead of a
+   * modulo and the loop has no branch.
+   */
+  public void collectCoinAll() {
+    for (int i = 0; i < size; i++) {
+      int c = coins[i] + 1;
+      int bonus = c == Character.COINS_PER_LIFE ? 1 : 0;
+      lives[i] += bonus;
+      coins[i] = c - bonus * Character.COINS_PER_LIFE;
+    }
+  }
+
+  /**
+   * Every character collects a power-up, like Character.collectPowerUp(random),
+   * drawing in index order.
+   *
+   * @param random The generator of the power-ups.
+   */
+  public void collectPowerUpAll(RandomGenerator random) {
+    // One catalog for the whole batch, even if it is reloaded meanwhile
+    PowerUpCatalog catalog = PowerUpCatalog.current();
+    for (int i = 0; i < size; i++) {
+      apply(i, catalog.sampleEvent(random));
+    }
+  }
+
+  /**
+   * Every character is hit by an enemy, like Character.hitEnemy(), without
+   * branches: the next state and the lives lost are looked up by state.
+   */
+  public void hitEnemyAll() {
+    for (int i = 0; i < size; i++) {
+      int cell = STATES.length + state[i];
+      lives[i] += HIT_LIVES[cell];
+      state[i] = HIT_NEXT_STATE[cell];
+    }
+  }
+
+  /**
+   * Every character ends a round, like Character.endRound(): invincible
+   * characters count down and the star wears off at zero.
+   *
+   * The count down is a masked decrement with no branch nor table lookup,
+   * which the JIT can vectorise; the few stars that reach zero are worn off
+   * by a second pass.
+   */
+  public void endRoundAll() {
+    for (int i = 0; i < size; i++) {
+      invincibleRounds[i] -= state[i] == INVINCIBLE ? 1 : 0;
+    }
+
+    for (int i = 0; i < size; i++) {
+      if (invincibleRounds[i] == 0 && state[i] == INVINCIBLE) {
+        apply(i, STAR_EXPIRED_EVENT);
+      }
+    }
+  }
+
+  /**
+   * Plays one round of the TestClient loop for every character with lives left:
+   * its action, then the end of the round.
+   *
+   * Runs as passes over the columns rather than one switch per character:
+   * the actions of the characters still playing, then coins, enemies and
+   * the count down as branch-free loops masked by action, and power-ups
+   * drawn in index order in a pass of their own. Each character plays one
+   * action, so the passes touch disjoint characters until the end of the
+   * round.
+   *
+   * @param actions COLLECT_COIN, COLLECT_POWER_UP or HIT_ENEMY for each character.
+   * @param random  The generator of the power-ups, drawn in index order.
+   * @return The number of characters that played.
+   */
+  public int playRound(byte[] actions, RandomGenerator random) {
+    if (playing == null) {
+      playing = new byte[size];
+    }
+
+    // Actions of the characters with lives left, as they are before the round;
+    // -lives >> 31 is all ones with lives left, else 0
+    int played = 0;
+    for (int i = 0; i < size; i++) {
+      int alive = -lives[i] >> 31;
+      playing[i] = (byte) (ACTION_CODES[actions[i] & 0xff] & alive);
+      played -= alive;
+    }
+
+    // Coins
+    for (int i = 0; i < size; i++) {
+      int c = coins[i] + (playing[i] == COLLECT_COIN ? 1 : 0);
+      int bonus = c == Character.COINS_PER_LIFE ? 1 : 0;
+      lives[i] += bonus;
+      coins[i] = c - bonus * Character.COINS_PER_LIFE;
+    }
+
+    // Enemies: row 0 of the lookups leaves the others as they are
+    for (int i = 0; i < size; i++) {
+      int cell = (playing[i] == HIT_ENEMY ? STATES.length : 0) + state[i];
+      lives[i] += HIT_LIVES[cell];
+      state[i] = HIT_NEXT_STATE[cell];
+    }
+
+    // Power-ups, one draw per character in index order like the objects
+    PowerUpCatalog catalog = PowerUpCatalog.current();
+    for (int i = 0; i < size; i++) {
+      if (playing[i] == COLLECT_POWER_UP) {
+        apply(i, catalog.sampleEvent(random));
+      }
+    }
+
+    // End of the round, for the characters that played
+    for (int i = 0; i < size; i++) {
+      invincibleRounds[i] -= (playing[i] != 0 ? 1 : 0) & (state[i] == INVINCIBLE ? 1 : 0);
+    }
+    for (int i = 0; i < size; i++) {
+      if (invincibleRounds[i] == 0 && state[i] == INVINCIBLE && playing[i] != 0) {
+        apply(i, STAR_EXPIRED_EVENT);
+      }
+    }
+
+    return played;
+  }
+
+  // Same as Character.handleEvent(), on the arrays and without messages
+  private void apply(int i, int event) {
+    int cell = state[i] * EVENTS + event;
+    int effects = EFFECTS[cell];
+    if (effects == 0) {
+      state[i] = NEXT_STATE[cell];
+      return;
+    }
+
+    if ((effects & StateTransitions.LOSE_LIFE) != 0) {
+      lives[i] -= 1;
+    }
+    if ((effects & StateTransitions.GAIN_LIFE) != 0) {
+      lives[i] += 1;
+    }
+    if ((effects & StateTransitions.SAVE_PREVIOUS_STATE) != 0) {
+      previousState[i] = state[i];
+    }
+    if ((effects & StateTransitions.RESET_INVINCIBILITY) != 0) {
+      invincibleRounds[i] = Character.INITIAL_INVINCIBLE_ROUNDS;
+    }
+
+    state[i] = (effects & StateTransitions.RESTORE_PREVIOUS_STATE) != 0 ? previousState[i] : NEXT_STATE[cell];
+
+    if ((effects & StateTransitions.COUNT_DOWN_INVINCIBILITY) != 0) {
+      invincibleRounds[i] -= 1;
+      if (invincibleRounds[i] == 0) {
+        apply(i, STAR_EXPIRED_EVENT);
+      }
+    }
+  }
+}
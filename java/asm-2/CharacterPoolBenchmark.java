@@ -0,0 +1,107 @@
+import java.util.SplittableRandom;
+
+/**
+ * Plays the same rounds on a CharacterPool and on one Character object per
+ * player, and compares their speed.
+ *
+ * Both receive the same actions and draw their power-ups from generators
+ * with the same seed in the same order, so every field of every character
+ * must match after each run: the benchmark doubles as a check that the pool
+ * keeps the Character semantics.
+ */
+public class CharacterPoolBenchmark {
+  /**
+   * Entry point
+   *
+   * @param args [characters] [rounds] [seed]
+   */
+  public static void main(String[] args) {
+    int characters = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+
+    // A few warm-up runs on a smaller population, then the measured one
+    for (int run = 0; run < 3; run++) {
+      run(characters / 10, rounds, seed + run, false);
+    }
+    run(characters, rounds, seed, true);
+  }
+
+  private static void run(int characters, int rounds, long seed, boolean print) {
+    // Actions of every round, shared by both sides
+    SplittableRandom actionRandom = new SplittableRandom(seed);
+    byte[][] actions = new byte[rounds][characters];
+    for (byte[] round : actions) {
+      for (int i = 0; i < characters; i++) {
+        round[i] = (byte) (1 + actionRandom.nextInt(3));
+      }
+    }
+
+    // Objects
+    long start = System.nanoTime();
+    Character[] players = new Character[characters];
+    for (int i = 0; i < characters; i++) {
+      players[i] = new Mario();
+      players[i].setListener(NoOpGameListener.INSTANCE);
+    }
+    SplittableRandom random = new SplittableRandom(seed + 1);
+    long objectRounds = 0;
+    for (byte[] round : actions) {
+      for (int i = 0; i < characters; i++) {
+        Character player = players[i];
+        if (player.getLives() <= 0) {
+          continue;
+        }
+
+        switch (round[i]) {
+          case CharacterPool.COLLECT_COIN:
+            player.collectCoin();
+            break;
+
+          case CharacterPool.COLLECT_POWER_UP:
+            player.collectPowerUp(random);
+            break;
+
+          default:
+            player.hitEnemy();
+            break;
+        }
+        player.endRound();
+        objectRounds++;
+      }
+    }
+    long objectNanos = System.nanoTime() - start;
+
+    // Pool
+    start = System.nanoTime();
+    CharacterPool pool = new CharacterPool(characters);
+    random = new SplittableRandom(seed + 1);
+    long poolRounds = 0;
+    for (byte[] round : actions) {
+      poolRounds += pool.playRound(round, random);
+    }
+    long poolNanos = System.nanoTime() - start;
+
+    // Every field must match
+    for (int i = 0; i < characters; i++) {
+      Character player = players[i];
+      if (player.getLives() != pool.getLives(i) || player.getCoins() != pool.getCoins(i)
+          || player.getState() != pool.getState(i) || player.getPreviousState() != pool.getPreviousState(i)
+          || player.getInvincibilityRounds() != pool.getInvincibilityRounds(i)) {
+        throw new IllegalStateException("Mismatch on character " + i);
+      }
+    }
+    if (objectRounds != poolRounds) {
+      throw new IllegalStateException("Mismatch on the number of rounds played");
+    }
+
+    if (print) {
+      System.out.printf("%s characters, %s rounds, %s character-rounds played, %s alive at the end%n", characters,
+          rounds, poolRounds, pool.countAlive());
+      System.out.printf("Character objects: %8.1f M character-rounds/s%n", objectRounds / (objectNanos / 1e3));
+      System.out.printf("CharacterPool:     %8.1f M character-rounds/s (%.1fx)%n", poolRounds / (poolNanos / 1e3),
+          (double) objectNanos / poolNanos);
+      System.out.println("All characters match");
+    }
+  }
+}
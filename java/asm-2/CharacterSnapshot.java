@@ -0,0 +1,428 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Binary snapshots of character populations.
+ *
+ * Every character takes the same number of bytes, stored column by column
+ * like CharacterPool: lives (int), coins, state, previous state and
+ * invincible rounds (one byte each), and for Character objects the index of
+ * their name and message (int). Saving and restoring a pool copies whole
+ * columns through a direct buffer and a FileChannel, so nothing is
+ * serialized character by character.
+ *
+ * File layout (little-endian):
+ * - int magic, int version, long count
+ * - state table: int n, then n names (short length, UTF-8 bytes)
+ * - profile table: int n, then n pairs of name and message (same encoding)
+ * - columns, each count values long
+ *
+ * States are stored by ordinal but restored by name through the state
+ * table, so adding or reordering GameState values does not break old
+ * snapshots; a snapshot naming a state that no longer exists is rejected.
+ */
+public class CharacterSnapshot {
+  // Constants: file format
+  private static final int MAGIC = 0x50534843; // "CHSP"
+  private static final int VERSION = 1;
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private CharacterSnapshot() {
+  }
+
+  /**
+   * Saves a pool.
+   *
+   * @param pool The characters.
+   * @param path The file to write.
+   * @throws IOException if the file cannot be written.
+   */
+  public static void save(CharacterPool pool, Path path) throws IOException {
+    write(path, pool.livesColumn(), pool.coinsColumn(), pool.stateColumn(), pool.previousStateColumn(),
+        pool.invincibleRoundsColumn(), new String[0], null);
+  }
+
+  /**
+   * Restores a pool saved by save(CharacterPool, Path).
+   *
+   * @param path The file to read.
+   * @return The pool.
+   * @throws IOException if the file cannot be read or is not a compatible snapshot.
+   */
+  public static CharacterPool loadPool(Path path) throws IOException {
+    Columns columns = read(path);
+    return new CharacterPool(columns.lives, columns.coins, columns.state, columns.previousState,
+        columns.invincibleRounds);
+  }
+
+  /**
+   * Saves characters with their names and messages.
+   *
+   * @param characters The characters.
+   * @param path       The file to write.
+   * @throws IOException if the file cannot be written.
+   * @throws IllegalArgumentException if a name or message takes more than 65535 bytes in UTF-8.
+   */
+  public static void save(Character[] characters, Path path) throws IOException {
+    int count = characters.length;
+    int[] lives = new int[count];
+    int[] coins = new int[count];
+    byte[] state = new byte[count];
+    byte[] previousState = new byte[count];
+    int[] invincibleRounds = new int[count];
+    int[] profiles = new int[count];
+
+    // Every distinct name and message is stored once
+    Map<String, Integer> indexes = new HashMap<>();
+    String[] table = new String[8];
+
+    for (int i = 0; i < count; i++) {
+      Character character = characters[i];
+      lives[i] = character.getLives();
+      coins[i] = character.getCoins();
+      state[i] = (byte) character.getState().ordinal();
+      previousState[i] = (byte) character.getPreviousState().ordinal();
+      invincibleRounds[i] = character.getInvincibilityRounds();
+
+      String key = character.getName() + '\n' + character.getMessage();
+      Integer index = indexes.get(key);
+      if (index == null) {
+        index = indexes.size();
+        indexes.put(key, index);
+        if (2 * index + 1 >= table.length) {
+          table = Arrays.copyOf(table, table.length * 2);
+        }
+        table[2 * index] = character.getName();
+        table[2 * index + 1] = character.getMessage();
+      }
+      profiles[i] = index;
+    }
+
+    write(path, lives, coins, state, previousState, invincibleRounds, Arrays.copyOf(table, 2 * indexes.size()),
+        profiles);
+  }
+
+  /**
+   * Restores characters saved by save(Character[], Path). Mario, Luigi,
+   * Peach and Toad come back as their own class; restored characters print
+   * to the console and count their invincibility down.
+   *
+   * @param path The file to read.
+   * @return The characters.
+   * @throws IOException if the file cannot be read or is not a compatible snapshot.
+   */
+  public static Character[] loadCharacters(Path path) throws IOException {
+    Columns columns = read(path);
+    if (columns.profiles == null) {
+      throw new IOException(path + " holds a pool, without names");
+    }
+
+    GameState[] states = GameState.values();
+    Character[] characters = new Character[columns.lives.length];
+    for (int i = 0; i < characters.length; i++) {
+      int profile = columns.profiles[i];
+      characters[i] = Character.named(columns.table[2 * profile], columns.table[2 * profile + 1]);
+      characters[i].restore(columns.lives[i], columns.coins[i], states[columns.state[i]],
+          states[columns.previousState[i]], columns.invincibleRounds[i]);
+    }
+    return characters;
+  }
+
+  private static void write(Path path, int[] lives, int[] coins, byte[] state, byte[] previousState,
+      int[] invincibleRounds, String[] table, int[] profiles) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+      // Header
+      buffer.putInt(MAGIC).putInt(VERSION).putLong(lives.length);
+      GameState[] states = GameState.values();
+      buffer.putInt(states.length);
+      for (GameState value : states) {
+        putString(channel, buffer, value.name());
+      }
+      buffer.putInt(table.length / 2);
+      for (String text : table) {
+        putString(channel, buffer, text);
+      }
+
+      // Columns
+      writeInts(channel, buffer, lives);
+      writeNarrowed(channel, buffer, coins);
+      writeBytes(channel, buffer, state);
+      writeBytes(channel, buffer, previousState);
+      writeNarrowed(channel, buffer, invincibleRounds);
+      if (profiles != null) {
+        writeInts(channel, buffer, profiles);
+      }
+      drain(channel, buffer);
+    }
+  }
+
+  private static Columns read(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.flip();
+
+      // Header
+      fill(channel, buffer, Integer.BYTES * 2 + Long.BYTES);
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException(path + " is not a character snapshot");
+      }
+      int version = buffer.getInt();
+      if (version != VERSION) {
+        throw new IOException(path + " has unsupported snapshot version " + version);
+      }
+      long count = buffer.getLong();
+      if (count < 0 || count > Integer.MAX_VALUE) {
+        throw new IOException(path + " has an invalid count " + count);
+      }
+
+      // Map saved state ordinals to the current ones by name
+      fill(channel, buffer, Integer.BYTES);
+      byte[] remap = new byte[buffer.getInt()];
+      boolean identity = remap.length == GameState.values().length;
+      for (int i = 0; i < remap.length; i++) {
+        String name = getString(channel, buffer);
+        try {
+          remap[i] = (byte) GameState.valueOf(name).ordinal();
+        } catch (IllegalArgumentException e) {
+          throw new IOException(path + " uses the unknown state " + name);
+        }
+        identity &= remap[i] == i;
+      }
+
+      fill(channel, buffer, Integer.BYTES);
+      String[] table = new String[2 * buffer.getInt()];
+      for (int i = 0; i < table.length; i++) {
+        table[i] = getString(channel, buffer);
+      }
+
+      // Columns
+      Columns columns = new Columns();
+      int n = (int) count;
+      columns.table = table;
+      columns.lives = readInts(channel, buffer, n);
+      columns.coins = readWidened(channel, buffer, n);
+      columns.state = readStates(channel, buffer, n, remap, identity, path);
+      columns.previousState = readStates(channel, buffer, n, remap, identity, path);
+      columns.invincibleRounds = readWidened(channel, buffer, n);
+      if (table.length > 0) {
+        columns.profiles = readInts(channel, buffer, n);
+        for (int profile : columns.profiles) {
+          if (profile < 0 || 2 * profile >= table.length) {
+            throw new IOException(path + " has an invalid profile index " + profile);
+          }
+        }
+      }
+      return columns;
+    }
+  }
+
+  // The columns of a snapshot being restored
+  private static class Columns {
+    int[] lives;
+    int[] coins;
+    byte[] state;
+    byte[] previousState;
+    int[] invincibleRounds;
+    int[] profiles;
+    String[] table;
+  }
+
+  // Writing: the buffer is in write mode between calls
+  private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+    int offset = 0;
+    while (offset < values.length) {
+      if (buffer.remaining() < Integer.BYTES) {
+        drain(channel, buffer);
+      }
+      int n = Math.min(values.length - offset, buffer.remaining() / Integer.BYTES);
+      buffer.asIntBuffer().put(values, offset, n);
+      buffer.position(buffer.position() + n * Integer.BYTES);
+      offset += n;
+    }
+  }
+
+  private static void writeBytes(FileChannel channel, ByteBuffer buffer, byte[] values) throws IOException {
+    int offset = 0;
+    while (offset < values.length) {
+      if (!buffer.hasRemaining()) {
+        drain(channel, buffer);
+      }
+      int n = Math.min(values.length - offset, buffer.remaining());
+      buffer.put(values, offset, n);
+      offset += n;
+    }
+  }
+
+  // Small counters (coins, invincible rounds) take one unsigned byte
+  private static void writeNarrowed(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] < 0 || values[i] > 0xff) {
+        throw new IllegalArgumentException("Value " + values[i] + " does not fit one byte");
+      }
+      if (!buffer.hasRemaining()) {
+        drain(channel, buffer);
+      }
+      buffer.put((byte) values[i]);
+    }
+  }
+
+  // Strings take an unsigned short length, then their UTF-8 bytes
+  private static void putString(FileChannel channel, ByteBuffer buffer, String text) throws IOException {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 0xffff) {
+      throw new IllegalArgumentException("\"" + text.substring(0, 20) + "...\" takes " + bytes.length
+          + " bytes, more than 65535");
+    }
+    if (buffer.remaining() < Short.BYTES + bytes.length) {
+      drain(channel, buffer);
+    }
+    buffer.putShort((short) bytes.length).put(bytes);
+  }
+
+  // Reading: the buffer is in read mode between calls
+  private static void fill(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+    if (buffer.remaining() >= needed) {
+      return;
+    }
+    buffer.compact();
+    while (buffer.position() < needed) {
+      if (channel.read(buffer) < 0) {
+        throw new IOException("Snapshot is truncated");
+      }
+    }
+    buffer.flip();
+  }
+
+  private static int[] readInts(FileChannel channel, ByteBuffer buffer, int count) throws IOException {
+    int[] values = new int[count];
+    int offset = 0;
+    while (offset < count) {
+      fill(channel, buffer, Integer.BYTES);
+      int n = Math.min(count - offset, buffer.remaining() / Integer.BYTES);
+      buffer.asIntBuffer().get(values, offset, n);
+      buffer.position(buffer.position() + n * Integer.BYTES);
+      offset += n;
+    }
+    return values;
+  }
+
+  private static int[] readWidened(FileChannel channel, ByteBuffer buffer, int count) throws IOException {
+    int[] values = new int[count];
+    for (int i = 0; i < count; i++) {
+      if (!buffer.hasRemaining()) {
+        fill(channel, buffer, 1);
+      }
+      values[i] = buffer.get() & 0xff;
+    }
+    return values;
+  }
+
+  private static byte[] readStates(FileChannel channel, ByteBuffer buffer, int count, byte[] remap, boolean identity,
+      Path path) throws IOException {
+    byte[] values = new byte[count];
+    int offset = 0;
+    while (offset < count) {
+      fill(channel, buffer, 1);
+      int n = Math.min(count - offset, buffer.remaining());
+      buffer.get(values, offset, n);
+      offset += n;
+    }
+
+    // Same states in the same order: the column is used as it is
+    for (int i = 0; i < count; i++) {
+      int saved = values[i] & 0xff;
+      if (saved >= remap.length) {
+        throw new IOException(path + " has an invalid state ordinal " + saved);
+      }
+      if (!identity) {
+        values[i] = remap[saved];
+      }
+    }
+    return values;
+  }
+
+  private static String getString(FileChannel channel, ByteBuffer buffer) throws IOException {
+    fill(channel, buffer, Short.BYTES);
+    int length = buffer.getShort() & 0xffff;
+    fill(channel, buffer, length);
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Entry point: save and restore a pool, and check the round trip.
+   *
+   * @param args [characters] [file]
+   */
+  public static void main(String[] args) throws IOException {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+    Path path = Path.of(args.length > 1 ? args[1] : "characters.snapshot");
+
+    // A few rounds so that the characters differ
+    CharacterPool pool = new CharacterPool(count);
+    SplittableRandom random = new SplittableRandom(42);
+    byte[] actions = new byte[count];
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < count; i++) {
+        actions[i] = (byte) (1 + random.nextInt(3));
+      }
+      pool.playRound(actions, random);
+    }
+
+    for (int run = 0; run < 3; run++) {
+      long start = System.nanoTime();
+      save(pool, path);
+      long saveNanos = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      CharacterPool restored = loadPool(path);
+      long loadNanos = System.nanoTime() - start;
+
+      boolean same = Arrays.equals(pool.livesColumn(), restored.livesColumn())
+          && Arrays.equals(pool.coinsColumn(), restored.coinsColumn())
+          && Arrays.equals(pool.stateColumn(), restored.stateColumn())
+          && Arrays.equals(pool.previousStateColumn(), restored.previousStateColumn())
+          && Arrays.equals(pool.invincibleRoundsColumn(), restored.invincibleRoundsColumn());
+
+      System.out.printf("%s characters, %.1f MB: saved in %.3f s, restored in %.3f s, %s%n", count,
+          path.toFile().length() / 1e6, saveNanos / 1e9, loadNanos / 1e9, same ? "identical" : "DIFFERENT");
+    }
+
+    // Round trip of named characters
+    Character[] characters = { new Mario(), new Luigi(), new Peach(), new Toad(), new Character("Yoshi", "Yoshi!") };
+    for (Character character : characters) {
+      character.setListener(NoOpGameListener.INSTANCE);
+      character.collectCoin();
+      character.collectPowerUp(random);
+    }
+    save(characters, path);
+    Character[] restored = loadCharacters(path);
+    for (int i = 0; i < restored.length; i++) {
+      System.out.printf("%s (%s): LIVES: %s COINS: %s STATUS: %s / %s: LIVES: %s COINS: %s STATUS: %s%n",
+          characters[i].getName(), characters[i].getClass().getName(), characters[i].getLives(),
+          characters[i].getCoins(), characters[i].getState(), restored[i].getClass().getName(),
+          restored[i].getLives(), restored[i].getCoins(), restored[i].getState());
+    }
+  }
+}
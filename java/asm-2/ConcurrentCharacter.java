@@ -0,0 +1,244 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.random.RandomGenerator;
+
+/**
+ * A character that many threads can update at once, e.g. in a shared world.
+ *
+ * Lives, coins, state, previous state and invincible rounds are packed into
+ * one long, so every action is a pure function from the old value to the new
+ * one, installed with a compare-and-set loop through a VarHandle. An action
+ * either happens completely or is retried on the new value: no lock, and no
+ * update is lost (Character.collectCoin(), for example, reads and writes
+ * coins and lives in separate steps).
+ *
+ * Bits of the packed value:
+ * - 0-31:  lives (signed)
+ * - 32-39: coins
+ * - 40-43: state ordinal
+ * - 44-47: previous state ordinal
+ * - 48-55: invincible rounds
+ *
+ * The rules are those of Character, taken from StateTransitions. This
+ * variant prints nothing; read its fields through the getters.
+ *
+ * Reference: https://www.baeldung.com/java-variable-handles
+ */
+public class ConcurrentCharacter {
+  private final String name;
+  private volatile long packed;
+
+  private static final VarHandle PACKED;
+
+  // Constants: layout of the packed value
+  private static final int COINS_SHIFT = 32;
+  private static final int STATE_SHIFT = 40;
+  private static final int PREVIOUS_STATE_SHIFT = 44;
+  private static final int INVINCIBLE_ROUNDS_SHIFT = 48;
+  private static final long BYTE_MASK = 0xff;
+  private static final long NIBBLE_MASK = 0xf;
+
+  private static final GameState[] STATES = GameState.values();
+
+  static {
+    try {
+      PACKED = MethodHandles.lookup().findVarHandle(ConcurrentCharacter.class, "packed", long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+
+    // Every value must fit its bits
+    if (STATES.length > NIBBLE_MASK + 1 || Character.INITIAL_INVINCIBLE_ROUNDS > BYTE_MASK
+        || Character.COINS_PER_LIFE > BYTE_MASK) {
+      throw new ExceptionInInitializerError("ConcurrentCharacter layout is too small");
+    }
+  }
+
+  /**
+   * Initializes a character with the initial values of Character.
+   *
+   * @param name The name of the character.
+   */
+  public ConcurrentCharacter(String name) {
+    this.name = name;
+    this.packed = pack(Character.INITIAL_LIVES, Character.INITIAL_COINS, Character.INITIAL_STATE.ordinal(),
+        Character.INITIAL_STATE.ordinal(), Character.INITIAL_INVINCIBLE_ROUNDS);
+  }
+
+  // Getters
+  /**
+   * Returns the character's name.
+   *
+   * @return The name of the character.
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Returns the current number of lives.
+   *
+   * @return The number of lives.
+   */
+  public int getLives() {
+    return lives(packed);
+  }
+
+  /**
+   * Returns the current number of coins.
+   *
+   * @return The number of coins.
+   */
+  public int getCoins() {
+    return coins(packed);
+  }
+
+  /**
+   * Returns the current game state.
+   *
+   * @return The current GameState.
+   */
+  public GameState getState() {
+    return STATES[state(packed)];
+  }
+
+  /**
+   * Returns the state before becoming invincible.
+   *
+   * @return The previous GameState.
+   */
+  public GameState getPreviousState() {
+    return STATES[previousState(packed)];
+  }
+
+  /**
+   * Returns the remaining number of invincible rounds.
+   *
+   * @return The number of remaining invincible rounds.
+   */
+  public int getInvincibilityRounds() {
+    return invincibleRounds(packed);
+  }
+
+  // Methods
+  /**
+   * Atomically collects a coin, trading every COINS_PER_LIFE coins for a life.
+   */
+  public void collectCoin() {
+    long old;
+    long next;
+    do {
+      old = packed;
+      int coins = coins(old) + 1;
+      int lives = lives(old);
+      if (coins == Character.COINS_PER_LIFE) {
+        coins = 0;
+        lives += 1;
+      }
+      next = pack(lives, coins, state(old), previousState(old), invincibleRounds(old));
+    } while (!PACKED.compareAndSet(this, old, next));
+  }
+
+  /**
+   * Atomically applies a random power-up from the current catalog.
+   *
+   * @param random The generator of the calling thread.
+   * @return The power-up collected.
+   */
+  public PowerUpItem collectPowerUp(RandomGenerator random) {
+    PowerUpItem item = PowerUpCatalog.current().sample(random);
+    handleEvent(item.getEvent());
+    return item;
+  }
+
+  /**
+   * Atomically processes the character being hit by an enemy.
+   */
+  public void hitEnemy() {
+    handleEvent(GameEvent.HIT_ENEMY);
+  }
+
+  /**
+   * Atomically ends a round: an invincible character counts one round down.
+   */
+  public void endRound() {
+    handleEvent(GameEvent.ROUND_END);
+  }
+
+  /**
+   * Atomically moves the character through the transition table.
+   *
+   * @param event The event that happened to the character.
+   */
+  public void handleEvent(GameEvent event) {
+    long old;
+    long next;
+    do {
+      old = packed;
+      next = apply(old, event);
+    } while (old != next && !PACKED.compareAndSet(this, old, next));
+  }
+
+  // Same as Character.handleEvent() on a packed value, without messages
+  private static long apply(long value, GameEvent event) {
+    int lives = lives(value);
+    int state = state(value);
+    int previousState = previousState(value);
+    int invincibleRounds = invincibleRounds(value);
+
+    StateTransitions.Transition transition = StateTransitions.get(STATES[state], event);
+    int effects = transition.effects;
+
+    if ((effects & StateTransitions.LOSE_LIFE) != 0) {
+      lives -= 1;
+    }
+    if ((effects & StateTransitions.GAIN_LIFE) != 0) {
+      lives += 1;
+    }
+    if ((effects & StateTransitions.SAVE_PREVIOUS_STATE) != 0) {
+      previousState = state;
+    }
+    if ((effects & StateTransitions.RESET_INVINCIBILITY) != 0) {
+      invincibleRounds = Character.INITIAL_INVINCIBLE_ROUNDS;
+    }
+
+    state = (effects & StateTransitions.RESTORE_PREVIOUS_STATE) != 0 ? previousState : transition.next.ordinal();
+
+    if ((effects & StateTransitions.COUNT_DOWN_INVINCIBILITY) != 0) {
+      invincibleRounds -= 1;
+      if (invincibleRounds == 0) {
+        return apply(pack(lives, coins(value), state, previousState, invincibleRounds), GameEvent.STAR_EXPIRED);
+      }
+    }
+
+    return pack(lives, coins(value), state, previousState, invincibleRounds);
+  }
+
+  private static long pack(int lives, int coins, int state, int previousState, int invincibleRounds) {
+    return (lives & 0xffffffffL)
+        | ((long) coins << COINS_SHIFT)
+        | ((long) state << STATE_SHIFT)
+        | ((long) previousState << PREVIOUS_STATE_SHIFT)
+        | ((long) invincibleRounds << INVINCIBLE_ROUNDS_SHIFT);
+  }
+
+  private static int lives(long value) {
+    return (int) value;
+  }
+
+  private static int coins(long value) {
+    return (int) ((value >>> COINS_SHIFT) & BYTE_MASK);
+  }
+
+  private static int state(long value) {
+    return (int) ((value >>> STATE_SHIFT) & NIBBLE_MASK);
+  }
+
+  private static int previousState(long value) {
+    return (int) ((value >>> PREVIOUS_STATE_SHIFT) & NIBBLE_MASK);
+  }
+
+  private static int invincibleRounds(long value) {
+    return (int) ((value >>> INVINCIBLE_ROUNDS_SHIFT) & BYTE_MASK);
+  }
+}
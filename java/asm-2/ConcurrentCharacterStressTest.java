@@ -0,0 +1,161 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hammers one ConcurrentCharacter from many threads and checks that no
+ * update is lost.
+ *
+ * Phase 1 only uses actions whose total effect does not depend on their
+ * order while the character stays SMALL (coins, One-up Mushrooms and enemy
+ * hits), so the final lives and coins are known exactly:
+ *   lives = 3 + coins / 5 + oneUps - hits, coins = coins % 5.
+ * The same actions are also run on a plain Character, which usually loses
+ * some of them.
+ *
+ * Phase 2 mixes every action, including Stars and round ends, and checks
+ * that the packed state stays valid.
+ */
+public class ConcurrentCharacterStressTest {
+  /**
+   * Entry point
+   *
+   * @param args [threads] [actions per thread] [seed]
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+    int actions = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+
+    boolean ok = orderIndependent(threads, actions, seed) & mixed(threads, actions, seed);
+    System.out.println(ok ? "PASSED" : "FAILED");
+    if (!ok) {
+      System.exit(1);
+    }
+  }
+
+  private static boolean orderIndependent(int threads, int actions, long seed) throws InterruptedException {
+    ConcurrentCharacter concurrent = new ConcurrentCharacter("Mario");
+    Character plain = new Mario();
+    plain.setListener(NoOpGameListener.INSTANCE);
+
+    AtomicLong coins = new AtomicLong();
+    AtomicLong oneUps = new AtomicLong();
+    AtomicLong hits = new AtomicLong();
+
+    long nanos = runThreads(threads, seed, random -> {
+      long c = 0;
+      long u = 0;
+      long h = 0;
+      for (int i = 0; i < actions; i++) {
+        switch (random.nextInt(3)) {
+          case 0:
+            concurrent.collectCoin();
+            plain.collectCoin();
+            c++;
+            break;
+
+          case 1:
+            concurrent.handleEvent(GameEvent.ONE_UP_MUSHROOM);
+            plain.handleEvent(GameEvent.ONE_UP_MUSHROOM);
+            u++;
+            break;
+
+          default:
+            concurrent.hitEnemy();
+            plain.hitEnemy();
+            h++;
+            break;
+        }
+      }
+      coins.addAndGet(c);
+      oneUps.addAndGet(u);
+      hits.addAndGet(h);
+    });
+
+    long expectedLives = Character.INITIAL_LIVES + coins.get() / Character.COINS_PER_LIFE + oneUps.get() - hits.get();
+    long expectedCoins = coins.get() % Character.COINS_PER_LIFE;
+    boolean ok = concurrent.getLives() == expectedLives && concurrent.getCoins() == expectedCoins
+        && concurrent.getState() == GameState.SMALL;
+
+    System.out.printf("Phase 1: %s threads x %s actions (%s coins, %s one-ups, %s hits) in %.3f s%n", threads, actions,
+        coins.get(), oneUps.get(), hits.get(), nanos / 1e9);
+    System.out.printf("  expected            LIVES: %s COINS: %s%n", expectedLives, expectedCoins);
+    System.out.printf("  ConcurrentCharacter LIVES: %s COINS: %s %s%n", concurrent.getLives(), concurrent.getCoins(),
+        ok ? "(no lost update)" : "(LOST UPDATES)");
+    System.out.printf("  Character           LIVES: %s COINS: %s (off by %s lives)%n", plain.getLives(),
+        plain.getCoins(), expectedLives - plain.getLives());
+    return ok;
+  }
+
+  private static boolean mixed(int threads, int actions, long seed) throws InterruptedException {
+    ConcurrentCharacter concurrent = new ConcurrentCharacter("Luigi");
+    AtomicLong invalid = new AtomicLong();
+
+    long nanos = runThreads(threads, seed + 1, random -> {
+      for (int i = 0; i < actions; i++) {
+        switch (random.nextInt(4)) {
+          case 0:
+            concurrent.collectCoin();
+            break;
+
+          case 1:
+            concurrent.collectPowerUp(random);
+            break;
+
+          case 2:
+            concurrent.hitEnemy();
+            break;
+
+          default:
+            concurrent.endRound();
+            break;
+        }
+
+        // The packed state must always decode to valid values
+        int rounds = concurrent.getInvincibilityRounds();
+        if (concurrent.getCoins() >= Character.COINS_PER_LIFE || rounds < 1
+            || rounds > Character.INITIAL_INVINCIBLE_ROUNDS) {
+          invalid.incrementAndGet();
+        }
+      }
+    });
+
+    System.out.printf("Phase 2: %s threads x %s mixed actions in %.3f s, %s invalid states, final LIVES: %s COINS: %s "
+        + "STATUS: %s%n", threads, actions, nanos / 1e9, invalid.get(), concurrent.getLives(), concurrent.getCoins(),
+        concurrent.getState());
+    return invalid.get() == 0;
+  }
+
+  // Starts all threads at once, each with its own generator, and waits for them
+  private static long runThreads(int threads, long seed, Worker worker) throws InterruptedException {
+    SplittableRandom root = new SplittableRandom(seed);
+    CountDownLatch start = new CountDownLatch(1);
+    Thread[] pool = new Thread[threads];
+
+    for (int t = 0; t < threads; t++) {
+      SplittableRandom random = root.split();
+      pool[t] = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        worker.run(random);
+      });
+      pool[t].start();
+    }
+
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Thread thread : pool) {
+      thread.join();
+    }
+    return System.nanoTime() - begin;
+  }
+
+  // Body of one stress thread
+  private interface Worker {
+    void run(SplittableRandom random);
+  }
+}
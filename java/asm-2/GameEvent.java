@@ -0,0 +1,6 @@
+/**
+ * Events that can change the GameState, see StateTransitions.
+ */
+enum GameEvent {
+  HIT_ENEMY, ONE_UP_MUSHROOM, SUPER_MUSHROOM, FLOWER, STAR, ROUND_END, STAR_EXPIRED
+}
@@ -0,0 +1,119 @@
+import java.io.PrintStream;
+
+/**
+ * Receives what happens to a character, instead of the character printing
+ * it to the console itself.
+ *
+ * Three sinks are available:
+ * - NoOpGameListener ignores everything, so headless runs pay nothing;
+ * - ConsoleGameListener prints the same text as the game always did;
+ * - AsyncGameListener queues the events in a ring buffer and hands them to
+ *   another listener in batches on a background thread.
+ *
+ * Listeners are called on the thread that plays the character.
+ */
+public interface GameListener {
+  /**
+   * A character collected a power-up item, before its effect is applied.
+   *
+   * @param character The character.
+   * @param item      The item collected.
+   */
+  void itemCollected(Character character, PowerUpItem item);
+
+  /**
+   * A character moved to another state.
+   *
+   * @param character The character.
+   * @param from      The state before.
+   * @param to        The state after.
+   */
+  void stateChanged(Character character, GameState from, GameState to);
+
+  /**
+   * A character lost a life.
+   *
+   * @param character The character, already with one life less.
+   */
+  void lifeLost(Character character);
+
+  /**
+   * The star of an invincible character wore off.
+   *
+   * @param character The character, already back to its previous state.
+   */
+  void starExpired(Character character);
+
+  /**
+   * A character says something, e.g. "Mama mia! I lost a life!" or "Jump!".
+   * Called before the structured events of the same action.
+   *
+   * @param character The character.
+   * @param text      The line of text.
+   */
+  void message(Character character, String text);
+}
+
+/**
+ * Ignores every event.
+ */
+class NoOpGameListener implements GameListener {
+  // Shared instance, the sink holds no state
+  public static final NoOpGameListener INSTANCE = new NoOpGameListener();
+
+  private NoOpGameListener() {
+  }
+
+  public void itemCollected(Character character, PowerUpItem item) {
+  }
+
+  public void stateChanged(Character character, GameState from, GameState to) {
+  }
+
+  public void lifeLost(Character character) {
+  }
+
+  public void starExpired(Character character) {
+  }
+
+  public void message(Character character, String text) {
+  }
+}
+
+/**
+ * Prints the events with the text the game has always printed.
+ */
+class ConsoleGameListener implements GameListener {
+  // Shared instance on System.out, the default listener of every Character
+  public static final ConsoleGameListener INSTANCE = new ConsoleGameListener(System.out);
+
+  private final PrintStream out;
+
+  /**
+   * Initializes a listener printing to the given stream.
+   *
+   * @param out Where to print, usually System.out.
+   */
+  public ConsoleGameListener(PrintStream out) {
+    this.out = out;
+  }
+
+  // One call per event, so that threads sharing the stream never interleave inside it
+  public void itemCollected(Character character, PowerUpItem item) {
+    out.printf("%s collected a %s\n%s%n", character.getName(), item.getName(), item.getDialogue());
+  }
+
+  // The text of a state change, a lost life or an expired star comes as messages
+  public void stateChanged(Character character, GameState from, GameState to) {
+  }
+
+  public void lifeLost(Character character) {
+  }
+
+  public void starExpired(Character character) {
+  }
+
+  public void message(Character character, String text) {
+    out.println(text);
+  }
+}
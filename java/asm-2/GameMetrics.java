@@ -0,0 +1,412 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Counters and histograms of what happens in games, plus JFR events.
+ *
+ * Counts power-ups by catalog item and by effect, state transitions (from,
+ * to), lives lost and star expiries through a GameListener wrapped around
+ * the real one (see listener()), and the latency of each TestClient
+ * action. Items are counted by name, so the items of a reloaded catalog
+ * add up with the earlier ones of the same name. Counters are
+ * LongAdders, so workers of a simulation can share one GameMetrics, and
+ * latencies go to histograms with one bucket per power of two nanoseconds.
+ *
+ * Every event is also committed as a JFR event in the "Game" category, so a
+ * flight recording (-XX:StartFlightRecording) shows them on a timeline.
+ * While no recording runs, JFR drops them after a flag check.
+ *
+ * Disabled by default: TestClient and GameSimulator then do not wrap their
+ * listener nor read the clock, so the game costs what it did before. Set
+ * -Dgame.metrics=true to print a summary to the standard error at exit, or
+ * -Dgame.metrics=<file> to write it to a file.
+ *
+ * Reference: https://www.baeldung.com/java-flight-recorder-monitoring
+ */
+public class GameMetrics {
+  // By item name, so that the items of every catalog loaded are counted, also after a reload
+  private final Map<String, LongAdder> items = new ConcurrentHashMap<>();
+  // By GameEvent ordinal
+  private final LongAdder[] powerUps;
+  private final LongAdder[] transitions;
+  private final LongAdder livesLost = new LongAdder();
+  private final LongAdder starExpiries = new LongAdder();
+  private final Histogram[] actions;
+
+  private static final GameState[] STATES = GameState.values();
+
+  // Constants: actions, numbered like the TestClient menu
+  private static final String[] ACTION_NAMES = { "Collect Coin", "Collect Power-Up", "Hit Enemy" };
+
+  /**
+   * Initializes empty metrics.
+   */
+  public GameMetrics() {
+    powerUps = adders(GameEvent.values().length);
+    transitions = adders(STATES.length * STATES.length);
+    actions = new Histogram[ACTION_NAMES.length];
+    for (int i = 0; i < actions.length; i++) {
+      actions[i] = new Histogram();
+    }
+  }
+
+  /**
+   * Creates the metrics asked for by -Dgame.metrics, and prints or writes
+   * their summary when the JVM exits.
+   *
+   * @return The metrics, or null when disabled.
+   */
+  public static GameMetrics fromProperty() {
+    String target = System.getProperty("game.metrics");
+
+    // Case: Disabled
+    if (target == null || target.equals("false")) {
+      return null;
+    }
+
+    GameMetrics metrics = new GameMetrics();
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      if (target.isEmpty() || target.equals("true")) {
+        metrics.print(System.err);
+        return;
+      }
+      try (PrintStream out = new PrintStream(Files.newOutputStream(Path.of(target)))) {
+        metrics.print(out);
+      } catch (IOException e) {
+        System.err.println("Cannot write the metrics: " + e.getMessage());
+      }
+    }, "game-metrics"));
+    return metrics;
+  }
+
+  /**
+   * Returns a listener counting every event into these metrics, then
+   * handing it to the given listener.
+   *
+   * @param delegate The listener receiving the events afterwards.
+   * @return The counting listener.
+   */
+  public GameListener listener(GameListener delegate) {
+    return new MetricsGameListener(this, delegate);
+  }
+
+  /**
+   * Records the latency of one action.
+   *
+   * @param action     The menu number: (1) coin, (2) power-up, (3) enemy.
+   * @param startNanos System.nanoTime() before the action.
+   */
+  public void actionPlayed(int action, long startNanos) {
+    long nanos = System.nanoTime() - startNanos;
+    actions[action - 1].record(nanos);
+
+    ActionEvent event = new ActionEvent();
+    if (event.shouldCommit()) {
+      event.action = ACTION_NAMES[action - 1];
+      event.nanos = nanos;
+      event.commit();
+    }
+  }
+
+  // Getters
+  /**
+   * Returns how many power-ups of a catalog item were collected.
+   *
+   * @param itemName The name of the item, e.g. "Ice Flower".
+   * @return The count.
+   */
+  public long getPowerUps(String itemName) {
+    LongAdder adder = items.get(itemName);
+    return adder == null ? 0 : adder.sum();
+  }
+
+  /**
+   * Returns how many power-ups triggering the given event were collected.
+   *
+   * @param event The event of the power-up, e.g. GameEvent.STAR.
+   * @return The count.
+   */
+  public long getPowerUps(GameEvent event) {
+    return powerUps[event.ordinal()].sum();
+  }
+
+  /**
+   * Returns how many times characters moved from one state to another.
+   *
+   * @param from The state before.
+   * @param to   The state after.
+   * @return The count.
+   */
+  public long getTransitions(GameState from, GameState to) {
+    return transitions[from.ordinal() * STATES.length + to.ordinal()].sum();
+  }
+
+  public long getLivesLost() {
+    return livesLost.sum();
+  }
+
+  public long getStarExpiries() {
+    return starExpiries.sum();
+  }
+
+  /**
+   * Prints every counter and the latency percentiles of each action.
+   *
+   * @param out Where to print.
+   */
+  public void print(PrintStream out) {
+    out.println("=== Game metrics ===");
+
+    long total = 0;
+    for (LongAdder adder : powerUps) {
+      total += adder.sum();
+    }
+
+    // Most collected first
+    List<Map.Entry<String, Long>> counts = new ArrayList<>();
+    for (Map.Entry<String, LongAdder> entry : items.entrySet()) {
+      counts.add(Map.entry(entry.getKey(), entry.getValue().sum()));
+    }
+    counts.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+    out.printf("Power-ups by item: %s%n", total);
+    for (Map.Entry<String, Long> entry : counts) {
+      out.printf("  %-24s %10s %6.2f%%%n", entry.getKey(), entry.getValue(),
+          total == 0 ? 0.0 : 100.0 * entry.getValue() / total);
+    }
+
+    out.println("Power-ups by effect:");
+    for (GameEvent event : GameEvent.values()) {
+      long count = powerUps[event.ordinal()].sum();
+      if (count > 0) {
+        out.printf("  %-24s %10s %6.2f%%%n", event, count, 100.0 * count / total);
+      }
+    }
+
+    out.println("State transitions:");
+    for (GameState from : STATES) {
+      for (GameState to : STATES) {
+        long count = getTransitions(from, to);
+        if (count > 0) {
+          out.printf("  %-10s -> %-10s %10s%n", from, to, count);
+        }
+      }
+    }
+
+    out.printf("Lives lost: %s%n", getLivesLost());
+    out.printf("Star expiries: %s%n", getStarExpiries());
+
+    out.println("Action latency (ns):     count       mean        p50        p99        max");
+    for (int i = 0; i < actions.length; i++) {
+      Histogram histogram = actions[i];
+      long count = histogram.count.sum();
+      if (count > 0) {
+        out.printf("  %-18s %10s %10.0f %10s %10s %10s%n", ACTION_NAMES[i], count,
+            (double) histogram.nanos.sum() / count, histogram.percentile(0.5), histogram.percentile(0.99),
+            histogram.max.get());
+      }
+    }
+  }
+
+  // Counting: called by MetricsGameListener on the playing thread
+  void powerUpCollected(Character character, PowerUpItem item) {
+    LongAdder adder = items.get(item.getName());
+    if (adder == null) {
+      adder = items.computeIfAbsent(item.getName(), name -> new LongAdder());
+    }
+    adder.increment();
+    powerUps[item.getEvent().ordinal()].increment();
+
+    PowerUpEvent event = new PowerUpEvent();
+    if (event.shouldCommit()) {
+      event.character = character.getName();
+      event.item = item.getName();
+      event.commit();
+    }
+  }
+
+  void stateChanged(Character character, GameState from, GameState to) {
+    transitions[from.ordinal() * STATES.length + to.ordinal()].increment();
+
+    StateChangeEvent event = new StateChangeEvent();
+    if (event.shouldCommit()) {
+      event.character = character.getName();
+      event.from = from.name();
+      event.to = to.name();
+      event.commit();
+    }
+  }
+
+  void lifeLost(Character character) {
+    livesLost.increment();
+
+    LifeLostEvent event = new LifeLostEvent();
+    if (event.shouldCommit()) {
+      event.character = character.getName();
+      event.lives = character.getLives();
+      event.commit();
+    }
+  }
+
+  void starExpired(Character character) {
+    starExpiries.increment();
+
+    StarExpiredEvent event = new StarExpiredEvent();
+    if (event.shouldCommit()) {
+      event.character = character.getName();
+      event.commit();
+    }
+  }
+
+  private static LongAdder[] adders(int count) {
+    LongAdder[] adders = new LongAdder[count];
+    for (int i = 0; i < count; i++) {
+      adders[i] = new LongAdder();
+    }
+    return adders;
+  }
+
+  /**
+   * Latencies in buckets of powers of two: bucket b counts the values below
+   * 2^b and at least 2^(b-1), so percentiles are upper bounds within 2x.
+   */
+  static class Histogram {
+    private final LongAdder[] buckets = adders(Long.SIZE + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    void record(long value) {
+      buckets[Long.SIZE - Long.numberOfLeadingZeros(Math.max(0, value))].increment();
+      count.increment();
+      nanos.add(value);
+      max.accumulate(value);
+    }
+
+    long percentile(double fraction) {
+      long rank = (long) Math.ceil(fraction * count.sum());
+      long seen = 0;
+      for (int b = 0; b < buckets.length; b++) {
+        seen += buckets[b].sum();
+        if (seen >= rank) {
+          return b == 0 ? 0 : Math.min(1L << Math.min(b, Long.SIZE - 2), max.get());
+        }
+      }
+      return max.get();
+    }
+  }
+}
+
+/**
+ * Counts every event into a GameMetrics, then hands it to another listener.
+ */
+class MetricsGameListener implements GameListener {
+  private final GameMetrics metrics;
+  private final GameListener delegate;
+
+  MetricsGameListener(GameMetrics metrics, GameListener delegate) {
+    this.metrics = metrics;
+    this.delegate = delegate;
+  }
+
+  public void itemCollected(Character character, PowerUpItem item) {
+    metrics.powerUpCollected(character, item);
+    delegate.itemCollected(character, item);
+  }
+
+  public void stateChanged(Character character, GameState from, GameState to) {
+    metrics.stateChanged(character, from, to);
+    delegate.stateChanged(character, from, to);
+  }
+
+  public void lifeLost(Character character) {
+    metrics.lifeLost(character);
+    delegate.lifeLost(character);
+  }
+
+  public void starExpired(Character character) {
+    metrics.starExpired(character);
+    delegate.starExpired(character);
+  }
+
+  public void message(Character character, String text) {
+    delegate.message(character, text);
+  }
+}
+
+// JFR events, without stack traces: they are committed on every action
+
+@Name("game.PowerUp")
+@Label("Power-Up Collected")
+@Category("Game")
+@StackTrace(false)
+class PowerUpEvent extends Event {
+  @Label("Character")
+  String character;
+
+  @Label("Item")
+  String item;
+}
+
+@Name("game.StateChange")
+@Label("State Change")
+@Category("Game")
+@StackTrace(false)
+class StateChangeEvent extends Event {
+  @Label("Character")
+  String character;
+
+  @Label("From")
+  String from;
+
+  @Label("To")
+  String to;
+}
+
+@Name("game.LifeLost")
+@Label("Life Lost")
+@Category("Game")
+@StackTrace(false)
+class LifeLostEvent extends Event {
+  @Label("Character")
+  String character;
+
+  @Label("Lives Left")
+  int lives;
+}
+
+@Name("game.StarExpired")
+@Label("Star Expired")
+@Category("Game")
+@StackTrace(false)
+class StarExpiredEvent extends Event {
+  @Label("Character")
+  String character;
+}
+
+@Name("game.Action")
+@Label("Action")
+@Category("Game")
+@Description("One action of the TestClient menu")
+@StackTrace(false)
+class ActionEvent extends Event {
+  @Label("Action")
+  String action;
+
+  @Label("Latency (ns)")
+  long nanos;
+}
@@ -0,0 +1,361 @@
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Headless Monte Carlo runs of the TestClient round loop.
+ *
+ * Every game plays rounds like TestClient.start() with actions drawn from a
+ * policy (a weighted mix of coin, power-up and enemy) until the character
+ * runs out of lives or a round limit is reached. Games are split across all
+ * cores with a parallel stream; every worker owns a SplittableRandom split
+ * from one seed, so workers share no generator and runs are reproducible for
+ * a given seed and worker count.
+ *
+ * Characters report to NoOpGameListener, so nothing is printed. Set
+ * -Dgamesimulator.events=console to print every message, or =async to print
+ * them in batches from a background thread per worker. Set -Dgame.metrics
+ * to count power-ups, transitions, lost lives and star expiries (see
+ * GameMetrics).
+ *
+ * Reference: https://www.baeldung.com/java-when-to-use-parallel-stream
+ */
+public class GameSimulator {
+  private final long games;
+  private final Policy policy;
+  private final int maxRounds;
+  private final long seed;
+
+  // Constants: actions, numbered like the TestClient menu
+  public static final int COLLECT_COIN = 1;
+  public static final int COLLECT_POWER_UP = 2;
+  public static final int HIT_ENEMY = 3;
+
+  private static final int DEFAULT_MAX_ROUNDS = 10_000;
+  // Game overs after this many rounds share the last histogram bucket
+  private static final int HISTOGRAM_LIMIT = 1 << 16;
+  private static final int ASYNC_CAPACITY = 1 << 16;
+
+  // none, console or async, see the class comment
+  private final String events = System.getProperty("gamesimulator.events", "none");
+  // Shared by all workers, null unless -Dgame.metrics is set
+  private final GameMetrics metrics = GameMetrics.fromProperty();
+
+  /**
+   * Initializes a batch of games.
+   *
+   * @param games     The number of games to play.
+   * @param policy    The mix of actions.
+   * @param maxRounds Games still alive after this many rounds are stopped.
+   * @param seed      The seed of the root generator.
+   */
+  public GameSimulator(long games, Policy policy, int maxRounds, long seed) {
+    this.games = games;
+    this.policy = policy;
+    this.maxRounds = maxRounds;
+    this.seed = seed;
+  }
+
+  /**
+   * Plays all games and merges the results of every worker.
+   *
+   * @return The merged result.
+   */
+  public Result run() {
+    int workers = Runtime.getRuntime().availableProcessors();
+
+    // SplittableRandom is not thread-safe, so split on this thread first
+    SplittableRandom root = new SplittableRandom(seed);
+    SplittableRandom[] randoms = new SplittableRandom[workers];
+    for (int i = 0; i < workers; i++) {
+      randoms[i] = root.split();
+    }
+
+    long start = System.nanoTime();
+    Result result = IntStream.range(0, workers)
+        .parallel()
+        .mapToObj(i -> play(games / workers + (i < games % workers ? 1 : 0), randoms[i]))
+        .reduce(Result::merge)
+        .orElseGet(() -> new Result(maxRounds));
+    result.nanos = System.nanoTime() - start;
+    return result;
+  }
+
+  // One worker: play its share of the games with its own generator and listener
+  private Result play(long count, SplittableRandom random) {
+    switch (events) {
+      case "console":
+        return play(count, random, ConsoleGameListener.INSTANCE);
+
+      case "async":
+        // One producer per sink, so one sink per worker
+        try (AsyncGameListener listener = AsyncGameListener.console(ASYNC_CAPACITY)) {
+          return play(count, random, listener);
+        }
+
+      default:
+        return play(count, random, NoOpGameListener.INSTANCE);
+    }
+  }
+
+  private Result play(long count, SplittableRandom random, GameListener listener) {
+    Result result = new Result(maxRounds);
+    if (metrics != null) {
+      listener = metrics.listener(listener);
+    }
+
+    for (long n = 0; n < count; n++) {
+      Character player = new Mario();
+      player.setListener(listener);
+
+      int round = 0;
+      while (player.getLives() > 0 && round < maxRounds) {
+        switch (policy.nextAction(random)) {
+          case COLLECT_COIN:
+            player.collectCoin();
+            break;
+
+          case COLLECT_POWER_UP:
+            player.collectPowerUp(random);
+            break;
+
+          default:
+            player.hitEnemy();
+            break;
+        }
+
+        round += 1;
+        player.endRound();
+      }
+
+      result.record(player.getLives() == 0, round);
+    }
+
+    return result;
+  }
+
+  /**
+   * A weighted mix of the three actions.
+   */
+  public static class Policy {
+    private final int coinWeight;
+    private final int powerUpWeight;
+    private final int total;
+
+    /**
+     * Initializes a policy from non-negative weights, e.g. 2, 1, 1 for
+     * half coins, a quarter power-ups and a quarter enemies.
+     *
+     * @param coinWeight    The weight of collecting a coin.
+     * @param powerUpWeight The weight of collecting a power-up.
+     * @param enemyWeight   The weight of hitting an enemy.
+     * @throws IllegalArgumentException if a weight is negative, or the sum is 0 or above Integer.MAX_VALUE.
+     */
+    public Policy(int coinWeight, int powerUpWeight, int enemyWeight) {
+      // Summed in long, so that large weights cannot wrap around
+      long sum = (long) coinWeight + powerUpWeight + enemyWeight;
+      if (coinWeight < 0 || powerUpWeight < 0 || enemyWeight < 0 || sum <= 0 || sum > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Weights should be non-negative with a positive sum of at most "
+            + Integer.MAX_VALUE);
+      }
+      this.coinWeight = coinWeight;
+      this.powerUpWeight = powerUpWeight;
+      this.total = (int) sum;
+    }
+
+    /**
+     * Parses "coin,powerUp,enemy" weights, e.g. "1,1,1".
+     *
+     * @param weights The comma-separated weights.
+     * @return The policy.
+     */
+    public static Policy parse(String weights) {
+      String[] parts = weights.split(",");
+      if (parts.length != 3) {
+        throw new IllegalArgumentException("Policy should be three weights: coin,powerUp,enemy");
+      }
+      return new Policy(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+          Integer.parseInt(parts[2].trim()));
+    }
+
+    /**
+     * Draws the next action.
+     *
+     * @param random The generator of the calling worker.
+     * @return COLLECT_COIN, COLLECT_POWER_UP or HIT_ENEMY.
+     */
+    public int nextAction(SplittableRandom random) {
+      int r = random.nextInt(total);
+      if (r < coinWeight) {
+        return COLLECT_COIN;
+      }
+      return r < coinWeight + powerUpWeight ? COLLECT_POWER_UP : HIT_ENEMY;
+    }
+
+    @Override
+    public String toString() {
+      return coinWeight + "," + powerUpWeight + "," + (total - coinWeight - powerUpWeight);
+    }
+  }
+
+  /**
+   * Counters collected by one worker, or merged from several.
+   */
+  public static class Result {
+    private final int maxRounds;
+    // gameOversAtRound[r] = number of games over right after round r; the last bucket
+    // holds every game over at HISTOGRAM_LIMIT rounds or more
+    private final long[] gameOversAtRound;
+    private long gameOvers;
+    // Exact, since the histogram lumps the longest games together
+    private long gameOverRounds;
+    private int maxGameOverRound;
+    // Games still alive at the round limit
+    private long survivors;
+    private long totalRounds;
+    private long nanos;
+
+    Result(int maxRounds) {
+      this.maxRounds = maxRounds;
+      this.gameOversAtRound = new long[Math.min(maxRounds, HISTOGRAM_LIMIT) + 1];
+    }
+
+    void record(boolean gameOver, int rounds) {
+      totalRounds += rounds;
+      if (gameOver) {
+        gameOvers++;
+        gameOverRounds += rounds;
+        maxGameOverRound = Math.max(maxGameOverRound, rounds);
+        gameOversAtRound[Math.min(rounds, gameOversAtRound.length - 1)]++;
+      } else {
+        survivors++;
+      }
+    }
+
+    Result merge(Result other) {
+      for (int i = 0; i < gameOversAtRound.length; i++) {
+        gameOversAtRound[i] += other.gameOversAtRound[i];
+      }
+      gameOvers += other.gameOvers;
+      gameOverRounds += other.gameOverRounds;
+      maxGameOverRound = Math.max(maxGameOverRound, other.maxGameOverRound);
+      survivors += other.survivors;
+      totalRounds += other.totalRounds;
+      return this;
+    }
+
+    public long getGames() {
+      return gameOvers + survivors;
+    }
+
+    /**
+     * Returns the fraction of games still alive after the given round.
+     *
+     * @param round Below HISTOGRAM_LIMIT, or the round limit itself.
+     * @return The survival rate, between 0 and 1.
+     * @throws IllegalArgumentException for rounds between HISTOGRAM_LIMIT and
+     *                                  the round limit, which share one bucket.
+     */
+    public double survival(int round) {
+      if (round >= maxRounds) {
+        return getGames() == 0 ? 0.0 : (double) survivors / getGames();
+      }
+      if (round >= HISTOGRAM_LIMIT) {
+        throw new IllegalArgumentException("Survival is only known up to round " + (HISTOGRAM_LIMIT - 1)
+            + " and at round " + maxRounds);
+      }
+
+      long over = 0;
+      for (int i = 0; i <= round; i++) {
+        over += gameOversAtRound[i];
+      }
+      return getGames() == 0 ? 0.0 : 1.0 - (double) over / getGames();
+    }
+
+    /**
+     * Returns the mean number of rounds of the games that ended in a game over.
+     *
+     * @return The mean, or 0 if no game was over.
+     */
+    public double meanRoundsToGameOver() {
+      return gameOvers == 0 ? 0.0 : (double) gameOverRounds / gameOvers;
+    }
+
+    /**
+     * Returns the longest game that ended in a game over.
+     *
+     * @return The number of rounds, or 0 if no game was over.
+     */
+    public int getMaxRoundsToGameOver() {
+      return maxGameOverRound;
+    }
+
+    public double getRoundsPerSecond() {
+      return totalRounds / (nanos / 1e9);
+    }
+
+    /**
+     * Prints the summary and the survival curve.
+     */
+    public void print() {
+      System.out.printf("Games: %s (game over %s, alive after %s rounds %s) in %.3f s%n", getGames(), gameOvers,
+          maxRounds, survivors, nanos / 1e9);
+      System.out.printf("Mean rounds to game over: %.2f (max %s)%n", meanRoundsToGameOver(), maxGameOverRound);
+      System.out.printf("Throughput: %.0f rounds/s, %.0f games/s%n", getRoundsPerSecond(),
+          getGames() / (nanos / 1e9));
+
+      // Survival at 1, 2, 5, 10, 20, 50, ... rounds, then at the round limit
+      System.out.println("Survival curve:");
+      int[] steps = { 1, 2, 5 };
+      int known = Math.min(maxRounds, HISTOGRAM_LIMIT - 1);
+      for (long scale = 1; scale <= known; scale *= 10) {
+        for (int step : steps) {
+          long round = step * scale;
+          if (round > known) {
+            break;
+          }
+          printSurvival(round);
+        }
+      }
+      if (maxRounds > known) {
+        printSurvival(maxRounds);
+      }
+    }
+
+    private void printSurvival(long round) {
+      double rate = survival((int) round);
+      System.out.printf("%8s %7.3f%% %s%n", round, rate * 100, "#".repeat((int) Math.round(rate * 40)));
+    }
+  }
+
+  /**
+   * Entry point
+   *
+   * @param args <games> [coin,powerUp,enemy weights] [max rounds] [seed]
+   */
+  public static void main(String[] args) {
+    if (args.length < 1 || args.length > 4) {
+      System.out.println("Usage: java GameSimulator <games> [coin,powerUp,enemy] [maxRounds] [seed]");
+      return;
+    }
+
+    try {
+      long games = Long.parseLong(args[0]);
+      Policy policy = Policy.parse(args.length > 1 ? args[1] : "1,1,1");
+      int maxRounds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_ROUNDS;
+      long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+
+      if (games <= 0 || maxRounds <= 0) {
+        System.out.println("games and maxRounds should be greater than zero");
+        return;
+      }
+
+      System.out.printf("Simulating %s game(s) with policy %s (coin,powerUp,enemy), at most %s rounds (seed %s)%n",
+          games, policy, maxRounds, seed);
+      new GameSimulator(games, policy, maxRounds, seed).run().print();
+    } catch (NumberFormatException e) {
+      System.out.println("games, weights, maxRounds and seed should be numbers");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+}
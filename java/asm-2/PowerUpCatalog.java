@@ -0,0 +1,429 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * A weighted catalog of power-up items, drawn in O(1) with an alias table.
+ *
+ * Each item has a name, a drop weight and the effect of one of the four
+ * built-in items (its GameEvent). Vose's method splits the weights into n
+ * columns of equal height, each holding at most two items, so a draw is
+ * one column index and one coin flip whatever the number of items. With
+ * equal weights every column holds one item and the coin flip is skipped,
+ * so the default catalog draws exactly like the former random.nextInt(4).
+ *
+ * Catalogs are immutable. The current one sits in a volatile field, read
+ * once per draw (or once per batch by CharacterPool): reloading builds a
+ * new catalog aside and swaps it in, so running games never wait, and each
+ * draw sees either the old catalog or the new one.
+ *
+ * Set -Dpowerups.catalog=<file> to load a catalog at startup and reload it
+ * whenever the file changes. Lines hold "name, weight, effect[, dialogue]",
+ * '#' starts a comment; see powerups.catalog. A session recorded by
+ * ActionLog replays the same only with the same catalog.
+ *
+ * Reference: https://www.keithschwarz.com/darts-dice-coins/
+ */
+public class PowerUpCatalog {
+  private final PowerUpItem[] items;
+  private final byte[] events;
+  private final double[] probability;
+  private final int[] alias;
+
+  // The catalog used by every draw
+  private static volatile PowerUpCatalog current = defaultCatalog();
+
+  static {
+    String path = System.getProperty("powerups.catalog");
+    if (path != null) {
+      try {
+        watch(Path.of(path));
+      } catch (IOException e) {
+        System.err.println("Cannot load the power-up catalog, using the built-in items: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Initializes a catalog and its alias table.
+   *
+   * @param items   The items, at least one.
+   * @param weights Their drop weights, positive and finite.
+   */
+  public PowerUpCatalog(PowerUpItem[] items, double[] weights) {
+    int n = items.length;
+    if (n == 0 || weights.length != n) {
+      throw new IllegalArgumentException("A catalog needs at least one item and one weight per item");
+    }
+
+    double sum = 0;
+    for (double weight : weights) {
+      if (!(weight > 0) || Double.isInfinite(weight)) {
+        throw new IllegalArgumentException("Weights should be positive and finite");
+      }
+      sum += weight;
+    }
+
+    this.items = items.clone();
+    this.events = new byte[n];
+    this.probability = new double[n];
+    this.alias = new int[n];
+    for (int i = 0; i < n; i++) {
+      events[i] = (byte) items[i].getEvent().ordinal();
+      alias[i] = i;
+    }
+
+    // Vose: scale to a mean of 1, then top every short column up from a tall one
+    double[] scaled = new double[n];
+    int[] small = new int[n];
+    int[] large = new int[n];
+    int smalls = 0;
+    int larges = 0;
+    for (int i = 0; i < n; i++) {
+      scaled[i] = weights[i] * n / sum;
+      if (scaled[i] < 1.0) {
+        small[smalls++] = i;
+      } else {
+        large[larges++] = i;
+      }
+    }
+
+    while (smalls > 0 && larges > 0) {
+      int s = small[--smalls];
+      int l = large[--larges];
+      probability[s] = scaled[s];
+      alias[s] = l;
+      scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+      if (scaled[l] < 1.0) {
+        small[smalls++] = l;
+      } else {
+        large[larges++] = l;
+      }
+    }
+
+    // What is left is 1 up to rounding errors
+    while (larges > 0) {
+      probability[large[--larges]] = 1.0;
+    }
+    while (smalls > 0) {
+      probability[small[--smalls]] = 1.0;
+    }
+  }
+
+  /**
+   * Returns the catalog every draw currently uses.
+   *
+   * @return The current catalog.
+   */
+  public static PowerUpCatalog current() {
+    return current;
+  }
+
+  /**
+   * Replaces the catalog of every later draw.
+   *
+   * @param catalog The new catalog.
+   */
+  public static void setCurrent(PowerUpCatalog catalog) {
+    current = catalog;
+  }
+
+  /**
+   * Returns the four built-in items with equal weights.
+   *
+   * @return The default catalog.
+   */
+  public static PowerUpCatalog defaultCatalog() {
+    PowerUpItem[] items = new PowerUpItem[PowerUpItem.count()];
+    double[] weights = new double[items.length];
+    for (int i = 0; i < items.length; i++) {
+      items[i] = PowerUpItem.get(i);
+      weights[i] = 1.0;
+    }
+    return new PowerUpCatalog(items, weights);
+  }
+
+  /**
+   * Reads a catalog file. An item with the name and effect of a built-in
+   * item and no dialogue is that shared item.
+   *
+   * @param path The catalog file.
+   * @return The catalog.
+   * @throws IOException if the file cannot be read or a line is invalid.
+   */
+  public static PowerUpCatalog load(Path path) throws IOException {
+    List<PowerUpItem> items = new ArrayList<>();
+    List<Double> weights = new ArrayList<>();
+
+    int number = 0;
+    for (String line : Files.readAllLines(path)) {
+      number++;
+      int comment = line.indexOf('#');
+      if (comment >= 0) {
+        line = line.substring(0, comment);
+      }
+      if (line.isBlank()) {
+        continue;
+      }
+
+      String[] parts = line.split(",", 4);
+      if (parts.length < 3) {
+        throw new IOException(path + ":" + number + ": expected name, weight, effect[, dialogue]");
+      }
+
+      String name = parts[0].trim();
+      double weight;
+      PowerUpItem builtIn;
+      try {
+        weight = Double.parseDouble(parts[1].trim());
+        builtIn = builtIn(GameEvent.valueOf(parts[2].trim()));
+      } catch (IllegalArgumentException e) {
+        throw new IOException(path + ":" + number + ": " + e.getMessage());
+      }
+      if (!(weight > 0) || Double.isInfinite(weight)) {
+        throw new IOException(path + ":" + number + ": weight should be positive and finite");
+      }
+
+      if (parts.length == 3 && name.equals(builtIn.getName())) {
+        items.add(builtIn);
+      } else {
+        String dialogue = parts.length == 4 ? parts[3].trim() : builtIn.getDialogue();
+        items.add(new CatalogItem(name, dialogue, builtIn.getEvent()));
+      }
+      weights.add(weight);
+    }
+
+    if (items.isEmpty()) {
+      throw new IOException(path + " holds no item");
+    }
+    return new PowerUpCatalog(items.toArray(new PowerUpItem[0]),
+        weights.stream().mapToDouble(Double::doubleValue).toArray());
+  }
+
+  /**
+   * Loads a catalog as the current one, then reloads it on a background
+   * thread whenever the file changes. A reload that fails keeps the
+   * previous catalog.
+   *
+   * @param path The catalog file.
+   * @return The catalog loaded now.
+   * @throws IOException if the file cannot be loaded or watched.
+   */
+  public static PowerUpCatalog watch(Path path) throws IOException {
+    PowerUpCatalog catalog = load(path);
+    setCurrent(catalog);
+
+    Path file = path.toAbsolutePath();
+    WatchService watcher = FileSystems.getDefault().newWatchService();
+    file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+    Thread thread = new Thread(() -> {
+      try {
+        while (true) {
+          WatchKey key = watcher.take();
+          boolean changed = false;
+          for (WatchEvent<?> event : key.pollEvents()) {
+            changed |= file.getFileName().equals(event.context());
+          }
+          key.reset();
+
+          if (changed) {
+            try {
+              setCurrent(load(file));
+            } catch (IOException | IllegalArgumentException e) {
+              System.err.println("Keeping the previous power-up catalog: " + e.getMessage());
+            }
+          }
+        }
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+        // Stop watching
+      }
+    }, "power-up-catalog");
+    thread.setDaemon(true);
+    thread.start();
+
+    return catalog;
+  }
+
+  // The shared item of a power-up event
+  private static PowerUpItem builtIn(GameEvent event) {
+    for (int i = 0; i < PowerUpItem.count(); i++) {
+      if (PowerUpItem.get(i).getEvent() == event) {
+        return PowerUpItem.get(i);
+      }
+    }
+    throw new IllegalArgumentException(event + " is not the effect of a power-up");
+  }
+
+  /**
+   * Draws the index of an item.
+   *
+   * @param random The generator of the calling thread.
+   * @return Between 0 and size() - 1.
+   */
+  public int sampleIndex(RandomGenerator random) {
+    int i = random.nextInt(items.length);
+    // Full columns need no coin flip
+    return probability[i] >= 1.0 || random.nextDouble() < probability[i] ? i : alias[i];
+  }
+
+  /**
+   * Draws an item.
+   *
+   * @param random The generator of the calling thread.
+   * @return The item.
+   */
+  public PowerUpItem sample(RandomGenerator random) {
+    return items[sampleIndex(random)];
+  }
+
+  /**
+   * Draws the event of an item, for CharacterPool.
+   *
+   * @param random The generator of the calling thread.
+   * @return The GameEvent ordinal of the item.
+   */
+  int sampleEvent(RandomGenerator random) {
+    return events[sampleIndex(random)];
+  }
+
+  // Getters
+  public int size() {
+    return items.length;
+  }
+
+  public PowerUpItem get(int index) {
+    return items[index];
+  }
+
+  /**
+   * Returns the probability of drawing an item, from the alias table.
+   *
+   * @param index The index of the item.
+   * @return The probability, between 0 and 1.
+   */
+  public double probability(int index) {
+    double sum = 0;
+    for (int i = 0; i < items.length; i++) {
+      if (i == index) {
+        sum += probability[i];
+      } else if (alias[i] == index) {
+        sum += 1.0 - probability[i];
+      }
+    }
+    return sum / items.length;
+  }
+
+  /**
+   * Entry point: compares alias draws with a linear scan of the cumulative
+   * weights on a large catalog, then swaps catalogs while a thread keeps
+   * drawing.
+   *
+   * @param args [items] [draws]
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+    int draws = args.length > 1 ? Integer.parseInt(args[1]) : 50_000_000;
+
+    SplittableRandom random = new SplittableRandom(42);
+    PowerUpCatalog catalog = randomCatalog(n, random);
+    double[] cumulative = new double[n];
+    double sum = 0;
+    for (int i = 0; i < n; i++) {
+      sum += catalog.probability(i);
+      cumulative[i] = sum;
+    }
+
+    for (int run = 0; run < 3; run++) {
+      long[] counts = new long[n];
+      long start = System.nanoTime();
+      for (int d = 0; d < draws; d++) {
+        counts[catalog.sampleIndex(random)]++;
+      }
+      long aliasNanos = System.nanoTime() - start;
+
+      long checksum = 0;
+      start = System.nanoTime();
+      for (int d = 0; d < draws; d++) {
+        double r = random.nextDouble() * sum;
+        int i = 0;
+        while (i < n - 1 && cumulative[i] <= r) {
+          i++;
+        }
+        checksum += i;
+      }
+      long linearNanos = System.nanoTime() - start;
+
+      // Chi-square of the drawn frequencies, close to n - 1 when they follow the weights
+      double chiSquare = 0;
+      for (int i = 0; i < n; i++) {
+        double expected = catalog.probability(i) * draws;
+        chiSquare += (counts[i] - expected) * (counts[i] - expected) / expected;
+      }
+
+      System.out.printf("%s items: alias %.2f ns/draw, linear scan %.2f ns/draw (%.1fx), chi-square %.0f for %s"
+          + " degrees of freedom (%s)%n", n, (double) aliasNanos / draws, (double) linearNanos / draws,
+          (double) linearNanos / aliasNanos, chiSquare, n - 1, checksum % 10);
+    }
+
+    // Hot reload: one thread draws while catalogs are swapped under it
+    PowerUpCatalog[] catalogs = { randomCatalog(n, random), randomCatalog(n / 2, random) };
+    setCurrent(catalogs[0]);
+    long[] drawn = new long[1];
+    long[] invalid = new long[1];
+    Thread player = new Thread(() -> {
+      SplittableRandom generator = new SplittableRandom(7);
+      long count = 0;
+      long bad = 0;
+      while (!Thread.currentThread().isInterrupted()) {
+        PowerUpCatalog c = current();
+        int i = c.sampleIndex(generator);
+        bad += i < 0 || i >= c.size() ? 1 : 0;
+        count++;
+      }
+      drawn[0] = count;
+      invalid[0] = bad;
+    });
+    player.start();
+
+    int swaps = 0;
+    long end = System.nanoTime() + 2_000_000_000L;
+    while (System.nanoTime() < end) {
+      setCurrent(catalogs[swaps++ % 2]);
+      Thread.sleep(1);
+    }
+    player.interrupt();
+    player.join();
+    System.out.printf("Hot reload: %s swaps while drawing %s items (%.1f M/s), %s invalid draws%n", swaps, drawn[0],
+        drawn[0] / 2e6, invalid[0]);
+    setCurrent(defaultCatalog());
+  }
+
+  private static PowerUpCatalog randomCatalog(int n, SplittableRandom random) {
+    PowerUpItem[] items = new PowerUpItem[n];
+    double[] weights = new double[n];
+    for (int i = 0; i < n; i++) {
+      PowerUpItem builtIn = PowerUpItem.get(random.nextInt(PowerUpItem.count()));
+      items[i] = new CatalogItem(builtIn.getName() + " #" + i, builtIn.getDialogue(), builtIn.getEvent());
+      weights[i] = 0.1 + random.nextDouble() * 10;
+    }
+    return new PowerUpCatalog(items, weights);
+  }
+}
+
+// An item of a catalog file: a name and dialogue of its own, the effect of a built-in item.
+class CatalogItem extends PowerUpItem {
+  CatalogItem(String name, String dialogue, GameEvent event) {
+    super(name, dialogue, event);
+  }
+}
@@ -1,20 +1,55 @@
+/**
+ * Power-up items are flyweights: they hold no per-character state, so one
+ * shared instance of each kind lives in the registry below and receives the
+ * character it affects as an argument. Collecting an item allocates nothing.
+ *
+ * Reference: https://www.baeldung.com/java-flyweight
+ */
 public abstract class PowerUpItem {
-  private String name;
-  private String dialogue;
-  protected Character character;
+  private final String name;
+  private final String dialogue;
+  private final GameEvent event;
+
+  // Shared instances
+  public static final PowerUpItem ONE_UP_MUSHROOM = new OneUpMushroom();
+  public static final PowerUpItem SUPER_MUSHROOM = new SuperMushroom();
+  public static final PowerUpItem FLOWER = new Flower();
+  public static final PowerUpItem STAR = new Star();
+
+  // Registry, indexed by the number drawn in Character.collectPowerUp()
+  private static final PowerUpItem[] REGISTRY = { ONE_UP_MUSHROOM, SUPER_MUSHROOM, FLOWER, STAR };
 
   /**
-   * Initializes a power-up item with its name, dialogue, and the character it affects.
+   * Initializes a power-up item with its name, dialogue and the event it causes.
    * This constructor is intended to be called by subclasses.
    *
-   * @param name      The name of the power-up item.
-   * @param dialogue  The dialogue message associated with the power-up.
-   * @param character The character instance that this power-up will affect.
+   * @param name     The name of the power-up item.
+   * @param dialogue The dialogue message associated with the power-up.
+   * @param event    The event looked up in the transition table when collected.
    */
-  public PowerUpItem(String name, String dialogue, Character character) {
+  protected PowerUpItem(String name, String dialogue, GameEvent event) {
     this.name = name;
     this.dialogue = dialogue;
-    this.character = character;
+    this.event = event;
+  }
+
+  /**
+   * Returns the shared power-up item at the given index of the registry.
+   *
+   * @param index Between 0 and count() - 1.
+   * @return The power-up item.
+   */
+  public static PowerUpItem get(int index) {
+    return REGISTRY[index];
+  }
+
+  /**
+   * Returns the number of kinds of power-up items.
+   *
+   * @return The size of the registry.
+   */
+  public static int count() {
+    return REGISTRY.length;
   }
 
   // Getters
@@ -36,70 +71,53 @@ public abstract class PowerUpItem {
     return this.dialogue;
   }
 
-  // Methods
   /**
-   * Abstract method to apply the specific effect of the power-up item
-   * to the associated character. Subclasses must implement this method.
+   * Returns the event this power-up item causes in the transition table.
+   *
+   * @return The GameEvent.
    */
-  public abstract void applyEffect();
-}
-
-class OneUpMushroom extends PowerUpItem {
-  public OneUpMushroom(Character character) {
-    super("One-up Mushroom", "Oh Yeah! I got a life!", character);
+  public GameEvent getEvent() {
+    return this.event;
   }
 
+  // Methods
   /**
-   * Applies the One-Up Mushroom effect: grants the character an extra life.
+   * Applies the effect of the power-up item to the given character,
+   * as defined by the transition table for its event.
+   *
+   * @param character The character collecting the power-up.
    */
-  public void applyEffect() {
-    character.gainLife();
+  public void applyEffect(Character character) {
+    character.handleEvent(event);
   }
 }
 
-class SuperMushroom extends PowerUpItem {
-  public SuperMushroom(Character character) {
-    super("Super Mushroom", "Oh Yeah! I grow bigger!", character);
+// One-Up Mushroom: grants the character an extra life.
+class OneUpMushroom extends PowerUpItem {
+  OneUpMushroom() {
+    super("One-up Mushroom", "Oh Yeah! I got a life!", GameEvent.ONE_UP_MUSHROOM);
   }
+}
 
-  /**
-   * Applies the Super Mushroom effect: changes the character's state to BIG
-   * if they are currently in the SMALL state.
-   */
-  public void applyEffect() {
-    // Only change state to BIG if the character is in SMALL state
-    if (character.getState() == GameState.SMALL) {
-      character.setState(GameState.BIG);
-    }
+// Super Mushroom: changes the character's state to BIG
+// if they are currently in the SMALL state.
+class SuperMushroom extends PowerUpItem {
+  SuperMushroom() {
+    super("Super Mushroom", "Oh Yeah! I grow bigger!", GameEvent.SUPER_MUSHROOM);
   }
 }
 
+// Flower: changes the character's state to FIRE,
+// unless they are currently INVINCIBLE.
 class Flower extends PowerUpItem {
-  public Flower(Character character) {
-    super("Flower", "Oh Yeah! I got a fire!", character);
-  }
-
-  /**
-   * Applies the Flower effect: changes the character's state to FIRE,
-   * unless they are currently INVINCIBLE.
-   */
-  public void applyEffect() {
-    // Only change state to FIRE if the character is not in INVINCIBLE state
-    if (character.getState() != GameState.INVINCIBLE) {
-      character.setState(GameState.FIRE);
-    }
+  Flower() {
+    super("Flower", "Oh Yeah! I got a fire!", GameEvent.FLOWER);
   }
 }
 
+// Star: changes the character's state to INVINCIBLE.
 class Star extends PowerUpItem {
-  public Star(Character character) {
-    super("Star", "Oh Yeah! I become invincible!", character);
-  }
-
-  /**
-   * Applies the Star effect: changes the character's state to INVINCIBLE.
-   */
-  public void applyEffect() {
-    character.setState(GameState.INVINCIBLE);
+  Star() {
+    super("Star", "Oh Yeah! I become invincible!", GameEvent.STAR);
   }
 }
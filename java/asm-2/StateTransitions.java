@@ -0,0 +1,109 @@
+/**
+ * Precomputed transition table of the character's GameState.
+ *
+ * Every rule that used to live in a switch (hitEnemy(), each power-up's
+ * applyEffect(), the Star case of collectPowerUp() and the invincibility
+ * countdown of the round loop) is one cell of this table, indexed by the
+ * current state and the event. A cell gives the next state, the side effects
+ * as bit flags and the messages to print, so applying an event is one array
+ * lookup and a few flag tests. A new state or event only needs new cells.
+ */
+final class StateTransitions {
+  // Side effects, combined as bit flags
+  static final int LOSE_LIFE = 1;
+  static final int GAIN_LIFE = 1 << 1;
+  // Remember the current state, to go back to it when the star wears off
+  static final int SAVE_PREVIOUS_STATE = 1 << 2;
+  // Go back to the remembered state instead of the next state of the cell
+  static final int RESTORE_PREVIOUS_STATE = 1 << 3;
+  static final int RESET_INVINCIBILITY = 1 << 4;
+  // Count one invincible round down, firing STAR_EXPIRED at zero
+  static final int COUNT_DOWN_INVINCIBILITY = 1 << 5;
+  // (Re)start the star's timer, for characters whose expiry runs on a TimerWheel
+  static final int START_STAR_TIMER = 1 << 6;
+
+  private static final String[] NO_MESSAGES = {};
+  private static final int EVENTS = GameEvent.values().length;
+
+  // TABLE[state.ordinal() * EVENTS + event.ordinal()]
+  private static final Transition[] TABLE = new Transition[GameState.values().length * EVENTS];
+
+  static {
+    // By default an event leaves the state as it is
+    for (GameState state : GameState.values()) {
+      for (GameEvent event : GameEvent.values()) {
+        define(state, event, state, 0);
+      }
+    }
+
+    // Hit by an enemy
+    define(GameState.SMALL, GameEvent.HIT_ENEMY, GameState.SMALL, LOSE_LIFE,
+        "Oh enemy!", "Mama mia! I lost a life!");
+    define(GameState.BIG, GameEvent.HIT_ENEMY, GameState.SMALL, 0,
+        "Oh enemy!", "Ooops! I become small.");
+    define(GameState.FIRE, GameEvent.HIT_ENEMY, GameState.SMALL, 0,
+        "Oh enemy!", "Oh yeah! I kill the enemy!", "Ooops! I become small.");
+    define(GameState.INVINCIBLE, GameEvent.HIT_ENEMY, GameState.INVINCIBLE, 0,
+        "Oh enemy!", "Woohoo!");
+
+    for (GameState state : GameState.values()) {
+      // One-up Mushroom: an extra life in any state
+      define(state, GameEvent.ONE_UP_MUSHROOM, state, GAIN_LIFE);
+
+      // Flower: FIRE unless INVINCIBLE
+      if (state != GameState.INVINCIBLE) {
+        define(state, GameEvent.FLOWER, GameState.FIRE, 0);
+      }
+    }
+
+    // Super Mushroom: only SMALL grows
+    define(GameState.SMALL, GameEvent.SUPER_MUSHROOM, GameState.BIG, 0);
+
+    // Star: INVINCIBLE for a fresh number of rounds, then back to the state before.
+    // A star collected while INVINCIBLE only restarts the count, so the state to go
+    // back to stays the one before the first star.
+    for (GameState state : GameState.values()) {
+      int effects = state == GameState.INVINCIBLE ? RESET_INVINCIBILITY : SAVE_PREVIOUS_STATE | RESET_INVINCIBILITY;
+      define(state, GameEvent.STAR, GameState.INVINCIBLE, effects | START_STAR_TIMER);
+    }
+
+    // End of a round: the star wears off (characters on a TimerWheel skip the count)
+    define(GameState.INVINCIBLE, GameEvent.ROUND_END, GameState.INVINCIBLE, COUNT_DOWN_INVINCIBILITY);
+    define(GameState.INVINCIBLE, GameEvent.STAR_EXPIRED, GameState.INVINCIBLE,
+        RESTORE_PREVIOUS_STATE | RESET_INVINCIBILITY, "Oh! Star effect has gone!");
+  }
+
+  private StateTransitions() {
+  }
+
+  private static void define(GameState state, GameEvent event, GameState next, int effects, String... messages) {
+    TABLE[state.ordinal() * EVENTS + event.ordinal()] = new Transition(next,
+        effects, messages.length == 0 ? NO_MESSAGES : messages);
+  }
+
+  /**
+   * Returns the transition of a state on an event.
+   *
+   * @param state The current state.
+   * @param event The event.
+   * @return The transition, never null.
+   */
+  static Transition get(GameState state, GameEvent event) {
+    return TABLE[state.ordinal() * EVENTS + event.ordinal()];
+  }
+
+  /**
+   * One cell of the table.
+   */
+  static final class Transition {
+    final GameState next;
+    final int effects;
+    final String[] messages;
+
+    Transition(GameState next, int effects, String[] messages) {
+      this.next = next;
+      this.effects = effects;
+      this.messages = messages;
+    }
+  }
+}
@@ -1,17 +1,71 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Scanner;
+import java.util.SplittableRandom;
 
 public class TestClient {
   private final Scanner scanner;
+  private final long seed;
+  // Actions of this session, null when not recording
+  private final ActionLog log;
   private Character player;
   private int round;
+  // Star expiry, advanced once per round
+  private final TimerWheel<Character> timers = new TimerWheel<>();
+  // Counters and latencies, null unless -Dgame.metrics is set
+  private final GameMetrics metrics = GameMetrics.fromProperty();
+  // Every round played, for undo, rewind and past states
+  private CharacterHistory history;
 
   /**
    * - Initializes the scanner for user input
    * - Sets the starting round value to 1.
+   * - Remembers the seed of the power-up generator.
+   *
+   * @param seed   The seed of the session's power-up generator.
+   * @param record Whether to record the actions (see saveRecording()).
    */
-  public TestClient() {
+  public TestClient(long seed, boolean record) {
     this.scanner = new Scanner(System.in);
     this.round = 1;
+    this.seed = seed;
+    this.log = record ? new ActionLog(seed) : null;
+  }
+
+  /**
+   * Creates the character of a menu choice, with its power-up generator.
+   *
+   * @param choice The menu number: (1) Mario, (2) Luigi, (3) Toad, (4) Peach.
+   * @param seed   The seed of the character's power-up generator.
+   * @return The new Character.
+   * @throws IllegalArgumentException if the choice is not in 1-4.
+   */
+  static Character createCharacter(int choice, long seed) {
+    Character character;
+
+    switch (choice) {
+      case 1:
+        character = new Mario();
+        break;
+
+      case 2:
+        character = new Luigi();
+        break;
+
+      case 3:
+        character = new Toad();
+        break;
+
+      case 4:
+        character = new Peach();
+        break;
+
+      default:
+        throw new IllegalArgumentException("Can't not found the character");
+    }
+
+    character.setRandom(new SplittableRandom(seed));
+    return character;
   }
 
   /**
@@ -30,28 +84,11 @@ public class TestClient {
     while (true) {
       try {
         input = Integer.parseInt(scanner.nextLine().trim());
+        choice = createCharacter(input, seed);
 
-        switch (input) {
-          case 1:
-            choice = new Mario();
-            break;
-
-          case 2:
-            choice = new Luigi();
-            break;
-
-          case 3:
-            choice = new Toad();
-            break;
-
-          case 4:
-            choice = new Peach();
-            break;
-
-          default:
-            throw new IllegalArgumentException("Can't not found the character");
+        if (log != null) {
+          log.setCharacter(input);
         }
-
         break;
       } catch (NumberFormatException e) {
         System.out.println("Please type a integer between the range 1-4");
@@ -79,6 +116,11 @@ public class TestClient {
    */
   private void start() {
     player = getCharacter();
+    player.useTimers(timers);
+    if (metrics != null) {
+      player.setListener(metrics.listener(player.getListener()));
+    }
+    history = new CharacterHistory(player);
     System.out.println("******************************");
     System.out.printf("%s: %s%n", player.getName(), player.getMessage());
     System.out.println("Let's start!");
@@ -87,10 +129,20 @@ public class TestClient {
       System.out.printf("Round: %s%n", round);
       printState();
       System.out
-          .print("Choose an action: (1) Collect Coin, (2) Collect Power-Up, (3) Hit Enemy, or type 'end' to exit.: ");
+          .print("Choose an action: (1) Collect Coin, (2) Collect Power-Up, (3) Hit Enemy, 'undo', 'rewind <round>', "
+              + "'at <round>', or type 'end' to exit.: ");
 
       String action = scanner.nextLine().trim();
 
+      // Case: Going back in time, or looking at a past round
+      if (action.equals("undo") || action.startsWith("rewind ") || action.startsWith("at ")) {
+        travel(action);
+        continue;
+      }
+
+      long start = metrics != null ? System.nanoTime() : 0;
+      PowerUpItem item = null;
+
       switch (action) {
         case "end":
           // User chose end game
@@ -102,7 +154,7 @@ public class TestClient {
           break;
 
         case "2":
-          player.collectPowerUp();
+          item = player.collectPowerUp();
           break;
 
         case "3":
@@ -114,21 +166,78 @@ public class TestClient {
           continue;
       }
 
+      if (metrics != null) {
+        metrics.actionPlayed(Integer.parseInt(action), start);
+      }
+      if (log != null) {
+        log.add(Integer.parseInt(action));
+      }
+      history.record(Integer.parseInt(action), item);
+
       round += 1;
 
-      if (player.getState() == GameState.INVINCIBLE) {
-        player.setInvincibilityRounds(player.getInvincibilityRounds() - 1);
+      // Fire the timed effects of this round, the star may wear off
+      timers.advance();
+    }
+
+    if (player.getLives() == 0) {
+      System.out.println("Game Over!");
+    }
+  }
+
+  /**
+   * Handles 'undo', 'rewind <round>' (back to the start of that round) and
+   * 'at <round>' (the state at the start of that round).
+   *
+   * @param command The command typed.
+   */
+  private void travel(String command) {
+    try {
+      if (command.startsWith("at ")) {
+        long at = Long.parseLong(command.substring(3).trim());
+        Character past = history.at(at - 1);
+        System.out.printf("Round %s: LIVES: %s COINS: %s STATUS: %s%n", at, past.getLives(), past.getCoins(),
+            past.getState());
+        return;
+      }
+
+      // Case: Recording - the recording cannot go back, its generator has moved on
+      if (log != null) {
+        System.out.println("Undo and rewind are not available while recording.");
+        return;
+      }
 
-        if (player.getInvincibilityRounds() == 0) {
-          System.out.println("Oh! Star effect has gone!");
-          player.setState(player.getPreviousState());
-          player.resetInvincibilityRounds();
+      if (command.equals("undo")) {
+        if (!history.undo()) {
+          System.out.println("Nothing to undo.");
         }
+      } else {
+        history.rewind(Long.parseLong(command.substring(7).trim()) - 1);
       }
+      round = (int) history.rounds() + 1;
+    } catch (NumberFormatException e) {
+      System.out.println("Please type a round number.");
+    } catch (IllegalArgumentException e) {
+      System.out.printf("Rounds %s to %s are available.%n", history.oldestRound() + 1, history.rounds() + 1);
     }
+  }
 
-    if (player.getLives() == 0) {
-      System.out.println("Game Over!");
+  /**
+   * Saves the recorded actions, the seed and the final state of the session.
+   *
+   * @param path The file to write.
+   */
+  private void saveRecording(Path path) {
+    // Case: No character chosen - nothing to replay
+    if (player == null) {
+      return;
+    }
+
+    log.finish(player);
+    try {
+      log.write(path);
+    } catch (IOException e) {
+      System.out.println("Cannot save the recording: " + e.getMessage());
     }
   }
 
@@ -136,10 +245,30 @@ public class TestClient {
    * The entry point of the application. Creates an instance of TestClient
    * and calls the start() method to run the game loop.
    *
-   * @param args Command-line arguments (not used).
+   * Set -Dtestclient.record=<file> to save the session's actions and seed,
+   * which "java ActionLog <file>" replays headlessly, and -Dgame.metrics
+   * to print counters and action latencies at exit (see GameMetrics).
+   *
+   * @param args Optionally the seed of the power-up generator.
    */
   public static void main(String[] args) {
-    TestClient testClient = new TestClient();
-    testClient.start();
+    long seed;
+    try {
+      seed = args.length > 0 ? Long.parseLong(args[0]) : System.nanoTime();
+    } catch (NumberFormatException e) {
+      System.out.println("Usage: java TestClient [seed]");
+      System.out.println("seed should be a number");
+      return;
+    }
+    String recordPath = System.getProperty("testclient.record");
+
+    TestClient testClient = new TestClient(seed, recordPath != null);
+    try {
+      testClient.start();
+    } finally {
+      if (recordPath != null) {
+        testClient.saveRecording(Path.of(recordPath));
+      }
+    }
   }
 }
@@ -0,0 +1,224 @@
+/**
+ * Hierarchical timer wheel counting in rounds (ticks).
+ *
+ * Timers live in the slot of their deadline: level 0 holds the next 64
+ * ticks one slot per tick, level 1 the next 64 * 64 ticks 64 per slot, and
+ * so on. advance() fires the timers of one level-0 slot and, every 64 ticks,
+ * moves one slot of the level above down. So a tick costs the number of
+ * timers expiring (plus the occasional cascade), never the number of
+ * timers scheduled, and schedule() and cancel() are O(1).
+ *
+ * Timers are reusable handles kept by their owner, e.g. one Star timer per
+ * Character, so rescheduling allocates nothing. Not thread-safe.
+ *
+ * Reference: http://www.cs.columbia.edu/~nahum/w6998/papers/sosp87-timing-wheels.pdf
+ *
+ * @param <T> The type of the targets of the timed effects.
+ */
+public class TimerWheel<T> {
+  // slots[level][index] is the sentinel of a circular list of timers
+  private final Timer<T>[][] slots;
+  private long now;
+  private int scheduled;
+
+  // Constants: 4 levels of 64 slots cover 2^24 ticks, later deadlines wait at the top
+  private static final int LEVELS = 4;
+  private static final int SLOT_BITS = 6;
+  private static final int SLOTS = 1 << SLOT_BITS;
+  private static final int SLOT_MASK = SLOTS - 1;
+  private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+  /**
+   * An effect that happens to a target when its timer expires.
+   *
+   * @param <T> The type of the target.
+   */
+  public interface Effect<T> {
+    /**
+     * Called by advance() when the timer expires.
+     *
+     * @param target The target of the timer.
+     */
+    void expire(T target);
+  }
+
+  /**
+   * A reusable timer: an effect, its target and, while scheduled, a deadline.
+   *
+   * @param <T> The type of the target.
+   */
+  public static class Timer<T> {
+    private final Effect<T> effect;
+    private final T target;
+    private long deadline;
+    private Timer<T> previous;
+    private Timer<T> next;
+
+    /**
+     * Initializes an unscheduled timer.
+     *
+     * @param effect What happens when the timer expires.
+     * @param target The target given to the effect.
+     */
+    public Timer(Effect<T> effect, T target) {
+      this.effect = effect;
+      this.target = target;
+    }
+
+    /**
+     * Whether the timer is waiting to expire.
+     *
+     * @return Whether it is scheduled.
+     */
+    public boolean isScheduled() {
+      return next != null;
+    }
+
+    /**
+     * Returns the tick the timer expires at.
+     *
+     * @return The deadline, meaningful while scheduled.
+     */
+    public long getDeadline() {
+      return deadline;
+    }
+
+    // Sentinels link to themselves
+    private void makeSentinel() {
+      previous = this;
+      next = this;
+    }
+  }
+
+  /**
+   * Initializes an empty wheel at tick 0.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public TimerWheel() {
+    slots = new Timer[LEVELS][SLOTS];
+    for (Timer<T>[] level : slots) {
+      for (int i = 0; i < SLOTS; i++) {
+        level[i] = new Timer<>(null, null);
+        level[i].makeSentinel();
+      }
+    }
+  }
+
+  /**
+   * Returns the current tick.
+   *
+   * @return The number of advance() calls so far.
+   */
+  public long now() {
+    return now;
+  }
+
+  /**
+   * Returns the number of timers waiting to expire.
+   *
+   * @return The number of scheduled timers.
+   */
+  public int size() {
+    return scheduled;
+  }
+
+  /**
+   * Schedules a timer to expire after the given number of ticks,
+   * replacing its previous deadline if it was already scheduled.
+   *
+   * @param timer The timer.
+   * @param delay At least 1: the timer expires during the delay-th next advance().
+   */
+  public void schedule(Timer<T> timer, long delay) {
+    if (delay < 1) {
+      throw new IllegalArgumentException("delay should be at least 1");
+    }
+    cancel(timer);
+    timer.deadline = now + delay;
+    insert(timer);
+    scheduled++;
+  }
+
+  /**
+   * Cancels a timer if it is scheduled.
+   *
+   * @param timer The timer.
+   */
+  public void cancel(Timer<T> timer) {
+    if (timer.isScheduled()) {
+      unlink(timer);
+      scheduled--;
+    }
+  }
+
+  /**
+   * Moves to the next tick and fires every timer expiring at it.
+   *
+   * @return The number of timers fired.
+   */
+  public int advance() {
+    now++;
+
+    // Every 64^k ticks, move the next slot of level k down, from the top level
+    for (int level = LEVELS - 1; level >= 1; level--) {
+      if ((now & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+        cascade(level);
+      }
+    }
+
+    // Detach the slot first: an effect may schedule timers again
+    Timer<T> sentinel = slots[0][(int) (now & SLOT_MASK)];
+    Timer<T> timer = sentinel.next;
+    sentinel.makeSentinel();
+    int fired = 0;
+
+    while (timer != sentinel) {
+      Timer<T> following = timer.next;
+      timer.previous = null;
+      timer.next = null;
+      scheduled--;
+      fired++;
+      timer.effect.expire(timer.target);
+      timer = following;
+    }
+
+    return fired;
+  }
+
+  // Put the timers of the current slot of a level back by their deadline
+  private void cascade(int level) {
+    Timer<T> sentinel = slots[level][(int) ((now >>> (SLOT_BITS * level)) & SLOT_MASK)];
+    Timer<T> timer = sentinel.next;
+    sentinel.makeSentinel();
+
+    while (timer != sentinel) {
+      Timer<T> following = timer.next;
+      insert(timer);
+      timer = following;
+    }
+  }
+
+  private void insert(Timer<T> timer) {
+    // Deadlines past the top level wait in its farthest slot and are placed again later
+    long delta = Math.min(timer.deadline - now, SPAN - 1);
+    long at = now + delta;
+
+    int level = 0;
+    while (delta >= (1L << (SLOT_BITS * (level + 1)))) {
+      level++;
+    }
+
+    Timer<T> sentinel = slots[level][(int) ((at >>> (SLOT_BITS * level)) & SLOT_MASK)];
+    timer.previous = sentinel.previous;
+    timer.next = sentinel;
+    sentinel.previous.next = timer;
+    sentinel.previous = timer;
+  }
+
+  private static <T> void unlink(Timer<T> timer) {
+    timer.previous.next = timer.next;
+    timer.next.previous = timer.previous;
+    timer.previous = null;
+    timer.next = null;
+  }
+}
@@ -0,0 +1,76 @@
+import java.util.SplittableRandom;
+
+/**
+ * Compares two ways of wearing stars off across a large population:
+ * calling endRound() on every character each round (O(population)) and
+ * advancing one shared TimerWheel (O(stars expiring)).
+ *
+ * Both populations receive the same Stars and enemy hits, and every field
+ * of every character must match after each run, so the benchmark doubles
+ * as a check that the wheel keeps the countdown semantics.
+ */
+public class TimerWheelBenchmark {
+  /**
+   * Entry point
+   *
+   * @param args [characters] [rounds] [events per round] [seed]
+   */
+  public static void main(String[] args) {
+    int characters = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+    int events = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+    long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+
+    Character[] countdown = new Character[characters];
+    Character[] timed = new Character[characters];
+    TimerWheel<Character> timers = new TimerWheel<>();
+    for (int i = 0; i < characters; i++) {
+      countdown[i] = new Mario();
+      countdown[i].setListener(NoOpGameListener.INSTANCE);
+      timed[i] = new Mario();
+      timed[i].setListener(NoOpGameListener.INSTANCE);
+      timed[i].useTimers(timers);
+    }
+
+    SplittableRandom random = new SplittableRandom(seed);
+    long countdownNanos = 0;
+    long timedNanos = 0;
+    long fired = 0;
+
+    for (int round = 0; round < rounds; round++) {
+      // A few characters collect a Star or meet an enemy this round
+      for (int e = 0; e < events; e++) {
+        int i = random.nextInt(characters);
+        GameEvent event = random.nextInt(4) == 0 ? GameEvent.HIT_ENEMY : GameEvent.STAR;
+        countdown[i].handleEvent(event);
+        timed[i].handleEvent(event);
+      }
+
+      long start = System.nanoTime();
+      for (Character character : countdown) {
+        character.endRound();
+      }
+      countdownNanos += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      fired += timers.advance();
+      timedNanos += System.nanoTime() - start;
+    }
+
+    for (int i = 0; i < characters; i++) {
+      Character a = countdown[i];
+      Character b = timed[i];
+      if (a.getLives() != b.getLives() || a.getState() != b.getState() || a.getPreviousState() != b.getPreviousState()
+          || a.getInvincibilityRounds() != b.getInvincibilityRounds()) {
+        throw new IllegalStateException("Mismatch on character " + i);
+      }
+    }
+
+    System.out.printf("%s characters, %s rounds, %s events per round, %s stars worn off%n", characters, rounds, events,
+        fired);
+    System.out.printf("endRound() on everyone: %10.1f us per round%n", countdownNanos / 1e3 / rounds);
+    System.out.printf("TimerWheel.advance():   %10.1f us per round (%.0fx)%n", timedNanos / 1e3 / rounds,
+        (double) countdownNanos / timedNanos);
+    System.out.println("All characters match");
+  }
+}
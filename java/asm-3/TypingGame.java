@@ -1,17 +1,45 @@
 import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Highlighter;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.StyledDocument;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Type the word (or, in passage mode, the passage) shown, key by key.
+ *
+ * Progress is an index into the target text: typed characters are
+ * highlighted rather than cut off, so a keystroke copies no string and
+ * costs the same on a 10-letter word and a 10,000-character passage. A
+ * mistake sends the cursor back to the start of the current word.
+ */
 public class TypingGame implements KeyListener {
   private JLabel roundLabel;
   private JLabel mistakeLabel;
   private JLabel timeLabel;
-  private JLabel wordLabel;
-  private String currentWord;
-  private String originalWord;
+  private JTextPane textPane;
+  private JScrollPane textScroll;
+  // The text to type, the next character to type and the start of its word
+  private String targetText;
+  private int position;
+  private int wordStart;
+  // Highlights of the typed part and of the next character
+  private Object typedHighlight;
+  private Object nextHighlight;
+
+  // Passage mode: one round on this text, null for rounds of random words
+  private final String passage;
+  private final int maxRounds;
+  // Where the random words come from, null for WORDS
+  private final WordDictionary dictionary;
 
   private int counter;
   private int mistakeCount;
@@ -19,7 +47,8 @@ public class TypingGame implements KeyListener {
   private Timer timer;
   private JFrame frame;
   private boolean isGameOver;
-  private Map<String, JButton> keyButtons = new HashMap<>();
+  // keyButtons[c] is the button of key c, null if c is not a key of the keyboard
+  private final JButton[] keyButtons = new JButton[KEY_TABLE_SIZE];
 
   private static final int MAX_ROUNDS = 5;
   private static final Color DEFAULT_MAIN_PANEL_COLOR = Color.WHITE;
@@ -29,39 +58,72 @@ public class TypingGame implements KeyListener {
   private static final Color INCORRECT_KEY_COLOR = Color.RED;
   private static final Color DEFAULT_KEY_COLOR = Color.BLACK;
 
-  private static final String[] KEYBOARD_KEYS = {
+  private static final Color TYPED_TEXT_COLOR = new Color(190, 240, 190);
+  private static final Color NEXT_CHARACTER_COLOR = new Color(255, 230, 120);
+
+  // Package-private for TypingGameBenchmark
+  static final String[] KEYBOARD_KEYS = {
       "Q", "W", "E", "R", "T", "Y", "U", "I", "O", "P",
       "A", "S", "D", "F", "G", "H", "J", "K", "L", ";",
       "Z", "X", "C", "V", "B", "N", "M", ",", ".", "/"
   };
+  // Every key is an ASCII character
+  private static final int KEY_TABLE_SIZE = 128;
+  private static final char SPACE = ' ';
+  private static final boolean[] IS_KEY = new boolean[KEY_TABLE_SIZE];
+
+  static {
+    for (String key : KEYBOARD_KEYS) {
+      IS_KEY[key.charAt(0)] = true;
+    }
+  }
   private static final String[] WORDS = {
       "LAI", "COMPUTER", "PROGRAMMING", "CAT", "OBJECT", "COLLEGE", "CLASS", "TEXT", "COMMUNITY", "AI"
   };
 
   public TypingGame() {
-    frame = new JFrame("Typing Game");
+    this(true, null, null);
+  }
+
+  /**
+   * Initializes a game, optionally without a window: the panels are built
+   * but not shown and the timer does not run, e.g. for TypingGameBenchmark.
+   *
+   * @param windowed Whether to show the game in a window.
+   * @param passage    The passage to type in one round (see normalizePassage()),
+   *                   or null for MAX_ROUNDS random words.
+   * @param dictionary The words to draw from, or null for the built-in WORDS.
+   */
+  TypingGame(boolean windowed, String passage, WordDictionary dictionary) {
+    this.passage = passage;
+    this.maxRounds = passage != null ? 1 : MAX_ROUNDS;
+    this.dictionary = dictionary;
+
     JPanel infoPanel = createInfoPanel();
     JPanel mainPanel = createMainPanel();
     JPanel keyboardPanel = createKeyboardPanel();
 
-    frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-    frame.setSize(640, 400);
-    frame.addKeyListener(this);
+    if (windowed) {
+      frame = new JFrame("Typing Game");
+      frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+      frame.setSize(640, 400);
+      frame.addKeyListener(this);
 
-    frame.addWindowListener(new WindowAdapter() {
-      @Override
-      public void windowActivated(WindowEvent e) {
-        frame.requestFocusInWindow();
-      }
-    });
+      frame.addWindowListener(new WindowAdapter() {
+        @Override
+        public void windowActivated(WindowEvent e) {
+          frame.requestFocusInWindow();
+        }
+      });
 
-    frame.setFocusable(true);
-    frame.requestFocusInWindow();
-    frame.setVisible(true);
+      frame.setFocusable(true);
+      frame.requestFocusInWindow();
+      frame.setVisible(true);
 
-    frame.add(infoPanel, BorderLayout.NORTH);
-    frame.add(mainPanel, BorderLayout.CENTER);
-    frame.add(keyboardPanel, BorderLayout.SOUTH);
+      frame.add(infoPanel, BorderLayout.NORTH);
+      frame.add(mainPanel, BorderLayout.CENTER);
+      frame.add(keyboardPanel, BorderLayout.SOUTH);
+    }
 
     newRound();
 
@@ -73,7 +135,9 @@ public class TypingGame implements KeyListener {
         setTimeLabel(counter);
       }
     });
-    timer.start();
+    if (windowed) {
+      timer.start();
+    }
   }
 
   /**
@@ -112,66 +176,101 @@ public class TypingGame implements KeyListener {
   }
 
   /**
-   * Creates the main panel that displays the current word to type.
-   * The word is shown in a large bold Arial font, centered horizontally,
-   * with a background color that changes based on correctness.
+   * Creates the main panel that displays the text to type.
+   * A word is shown in a large bold Arial font, centered horizontally, a
+   * passage in a smaller font, wrapped and scrolled; the background color
+   * changes based on correctness. The pane never takes the focus, so keys
+   * keep going to the frame.
    *
-   * @return JPanel containing the word label.
+   * @return JPanel containing the text pane.
    */
   private JPanel createMainPanel() {
     JPanel mainPanel = new JPanel(new BorderLayout());
 
-    wordLabel = new JLabel(currentWord, SwingConstants.CENTER);
-    wordLabel.setFont(new Font("Arial", Font.BOLD, 48));
-    wordLabel.setOpaque(true);
-    wordLabel.setBackground(DEFAULT_MAIN_PANEL_COLOR);
-    mainPanel.add(wordLabel, BorderLayout.CENTER);
+    textPane = new JTextPane();
+    textPane.setEditable(false);
+    textPane.setFocusable(false);
+    textPane.setFont(passage != null ? new Font("Arial", Font.PLAIN, 22) : new Font("Arial", Font.BOLD, 48));
+    textPane.setBackground(DEFAULT_MAIN_PANEL_COLOR);
+
+    Highlighter highlighter = textPane.getHighlighter();
+    try {
+      typedHighlight = highlighter.addHighlight(0, 0, new DefaultHighlighter.DefaultHighlightPainter(TYPED_TEXT_COLOR));
+      nextHighlight = highlighter.addHighlight(0, 0,
+          new DefaultHighlighter.DefaultHighlightPainter(NEXT_CHARACTER_COLOR));
+    } catch (BadLocationException e) {
+      throw new IllegalStateException(e);
+    }
+
+    textScroll = new JScrollPane(textPane, ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED,
+        ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+    textScroll.setBorder(null);
+    mainPanel.add(textScroll, BorderLayout.CENTER);
 
     return mainPanel;
   }
 
   /**
-   * Creates the keyboard panel with buttons representing keys Q to /.
+   * Creates the keyboard panel with buttons representing keys Q to /,
+   * and in passage mode a space bar below them.
    * Each button is styled with Arial font size 24.
    * Mouse listeners simulate key press and release events for each button.
    *
    * @return JPanel containing the keyboard buttons.
    */
   private JPanel createKeyboardPanel() {
-    JPanel keyboardPanel = new JPanel(new GridLayout(3, 10));
+    JPanel keyboardPanel = new JPanel(new BorderLayout());
+    JPanel keysPanel = new JPanel(new GridLayout(3, 10));
+    keyboardPanel.add(keysPanel, BorderLayout.CENTER);
 
     for (String key : KEYBOARD_KEYS) {
-      JButton button = new JButton(key);
-      button.setFont(new Font("Arial", Font.PLAIN, 24));
-      keyboardPanel.add(button);
-      keyButtons.put(key, button);
-
-      // Add mouse listener to simulate keyPressed and keyReleased
-      button.addMouseListener(new MouseAdapter() {
-        @Override
-        public void mousePressed(MouseEvent e) {
-          handleKeyPressed(key.charAt(0));
-        }
+      keysPanel.add(createKeyButton(key, key.charAt(0)));
+    }
 
-        @Override
-        public void mouseReleased(MouseEvent e) {
-          handleKeyReleased(key.charAt(0));
-        }
-      });
+    // Case: Passage mode - words are separated by spaces
+    if (passage != null) {
+      keyboardPanel.add(createKeyButton("SPACE", SPACE), BorderLayout.SOUTH);
     }
 
     return keyboardPanel;
   }
 
+  /**
+   * Creates the button of one key and registers it in keyButtons.
+   *
+   * @param text The text of the button.
+   * @param key  The character of the key.
+   * @return The button.
+   */
+  private JButton createKeyButton(String text, char key) {
+    JButton button = new JButton(text);
+    button.setFont(new Font("Arial", Font.PLAIN, 24));
+    keyButtons[key] = button;
+
+    // Add mouse listener to simulate keyPressed and keyReleased
+    button.addMouseListener(new MouseAdapter() {
+      @Override
+      public void mousePressed(MouseEvent e) {
+        handleKeyPressed(key);
+      }
+
+      @Override
+      public void mouseReleased(MouseEvent e) {
+        handleKeyReleased(key);
+      }
+    });
+
+    return button;
+  }
+
   /**
    * Handles the visual update when a key is released.
    * Resets the foreground color of the corresponding key button to default.
    *
    * @param released The character of the key released.
    */
-  private void handleKeyReleased(char released) {
-    String keyStr = String.valueOf(released);
-    JButton releasedButton = keyButtons.get(keyStr);
+  void handleKeyReleased(char released) {
+    JButton releasedButton = keyButton(released);
     if (releasedButton != null) {
       releasedButton.setForeground(DEFAULT_KEY_COLOR);
     }
@@ -179,57 +278,118 @@ public class TypingGame implements KeyListener {
 
   /**
    * Handles the logic when a key is pressed.
-   * Checks if the pressed key matches the first character of the current word.
-   * If correct, updates the word display and color, and proceeds to next round or
-   * ends game.
+   * Checks if the pressed key matches the character at the cursor.
+   * If correct, moves the cursor and the highlights, and proceeds to next
+   * round or ends game at the end of the text.
    * If incorrect, increments mistake count, applies time penalty, changes colors,
-   * and resets the word.
+   * and moves the cursor back to the start of the current word.
    *
    * @param input The character of the key pressed.
    */
-  private void handleKeyPressed(char input) {
-    char currentChar = Character.toUpperCase(currentWord.charAt(0));
+  void handleKeyPressed(char input) {
+    JButton button = keyButton(input);
 
     // If the game is over or the input is not a valid key, return
-    if (isGameOver || !Arrays.asList(KEYBOARD_KEYS).contains(String.valueOf(input)) || currentWord.length() == 0) {
+    if (isGameOver || button == null || position >= targetText.length()) {
       return;
     }
 
-    if (input == currentChar) {
-      JButton correctButton = keyButtons.get(String.valueOf(input));
-      if (correctButton != null) {
-        correctButton.setForeground(CORRECT_KEY_COLOR);
-      }
+    if (input == targetText.charAt(position)) {
+      button.setForeground(CORRECT_KEY_COLOR);
 
-      currentWord = currentWord.substring(1);
-      wordLabel.setText(currentWord);
-      wordLabel.setBackground(DEFAULT_MAIN_PANEL_COLOR);
+      position++;
+      if (input == SPACE) {
+        wordStart = position;
+      }
+      textPane.setBackground(DEFAULT_MAIN_PANEL_COLOR);
 
-      if (currentWord.isEmpty()) {
-        if (roundCount < MAX_ROUNDS) {
+      if (position == targetText.length()) {
+        if (roundCount < maxRounds) {
           newRound();
         } else {
           endGame();
         }
+        return;
       }
+      showProgress();
     } else {
       mistakeCount++;
       mistakeLabel.setText("Mistake: " + mistakeCount);
       // Penalty for wrong input
       counter += 5;
       setTimeLabel(counter);
-      wordLabel.setBackground(WRONG_MAIN_PANEL_COLOR);
+      textPane.setBackground(WRONG_MAIN_PANEL_COLOR);
 
-      JButton wrongButton = keyButtons.get(String.valueOf(input));
-      if (wrongButton != null) {
-        wrongButton.setForeground(INCORRECT_KEY_COLOR);
-      }
+      button.setForeground(INCORRECT_KEY_COLOR);
+
+      position = wordStart;
+      showProgress();
+    }
+  }
 
-      currentWord = originalWord;
-      wordLabel.setText(currentWord);
+  /**
+   * Moves the highlights to the cursor: the typed part, then the next
+   * character, scrolled into view in a passage.
+   */
+  private void showProgress() {
+    Highlighter highlighter = textPane.getHighlighter();
+    try {
+      highlighter.changeHighlight(typedHighlight, 0, position);
+      highlighter.changeHighlight(nextHighlight, position, Math.min(position + 1, targetText.length()));
+
+      if (passage != null) {
+        Rectangle2D next = textPane.modelToView2D(position);
+        if (next != null) {
+          textPane.scrollRectToVisible(next.getBounds());
+        }
+      }
+    } catch (BadLocationException e) {
+      throw new IllegalStateException(e);
     }
   }
 
+  /**
+   * Shows a new text to type, centered for a word, with nothing typed yet.
+   *
+   * @param text The text.
+   */
+  private void showText(String text) {
+    textPane.setText(text);
+
+    SimpleAttributeSet alignment = new SimpleAttributeSet();
+    StyleConstants.setAlignment(alignment, passage != null ? StyleConstants.ALIGN_LEFT : StyleConstants.ALIGN_CENTER);
+    StyledDocument document = textPane.getStyledDocument();
+    document.setParagraphAttributes(0, document.getLength(), alignment, false);
+  }
+
+  /**
+   * Returns the button of a key in constant time, without allocating.
+   *
+   * @param key The character of the key.
+   * @return The button, or null if the character is not a key of the keyboard.
+   */
+  private JButton keyButton(char key) {
+    return key < keyButtons.length ? keyButtons[key] : null;
+  }
+
+  /**
+   * Returns the next character to type, for TypingGameBenchmark.
+   *
+   * @return The expected key.
+   */
+  char expectedKey() {
+    return targetText.charAt(position);
+  }
+
+  /**
+   * Returns whether the last round is over.
+   *
+   * @return True if the game has ended.
+   */
+  boolean isGameOver() {
+    return isGameOver;
+  }
+
   /**
    * Updates the time label to display the elapsed time in seconds.
    *
@@ -241,36 +401,84 @@ public class TypingGame implements KeyListener {
 
   /**
    * Starts a new round by incrementing the round count,
-   * selecting a random word from the WORDS array,
-   * resetting the current word and updating the display.
+   * selecting a random word from the dictionary or the WORDS array (or the passage),
+   * moving the cursor to its start and updating the display.
    * Also requests focus for the game window.
    */
   private void newRound() {
     roundCount++;
     roundLabel.setText("Round: " + roundCount);
 
-    int randomIndex = (int) (Math.random() * WORDS.length);
-    originalWord = WORDS[randomIndex];
-    currentWord = originalWord;
-    wordLabel.setText(currentWord);
-    wordLabel.setBackground(DEFAULT_MAIN_PANEL_COLOR);
-
-    frame.requestFocusInWindow();
+    if (passage != null) {
+      targetText = passage;
+    } else if (dictionary != null) {
+      targetText = dictionary.randomWord(ThreadLocalRandom.current());
+    } else {
+      int randomIndex = (int) (Math.random() * WORDS.length);
+      targetText = WORDS[randomIndex];
+    }
+    position = 0;
+    wordStart = 0;
+    showText(targetText);
+    showProgress();
+    textPane.setBackground(DEFAULT_MAIN_PANEL_COLOR);
+
+    if (frame != null) {
+      frame.requestFocusInWindow();
+    }
   }
 
   /**
    * Ends the game by stopping the timer,
    * setting the game over flag,
-   * and updating the word label to show the final time used.
-   * The message is formatted with HTML for multi-line display.
+   * and replacing the text with the final time used.
    */
   private void endGame() {
     isGameOver = true;
     timer.stop();
-    // Use HTML to create a new line
-    wordLabel
-        .setText("<html><div style='text-align: center;font-size: 16px;'>Game End!<br>Time used: " + counter + " second"
-            + (counter > 1 ? "s" : "") + "</div></html>");
+
+    position = 0;
+    targetText = "";
+    textPane.setFont(new Font("Arial", Font.PLAIN, 16));
+    showText("Game End!\nTime used: " + counter + " second" + (counter > 1 ? "s" : ""));
+    showProgress();
+  }
+
+  /**
+   * Prepares a passage for typing: upper case, every run of white space
+   * as one space, and only the characters of the keyboard.
+   *
+   * @param text The raw text, e.g. a paragraph read from a file.
+   * @return The passage, possibly empty.
+   */
+  static String normalizePassage(String text) {
+    StringBuilder passage = new StringBuilder(text.length());
+    boolean space = false;
+
+    for (int i = 0; i < text.length(); i++) {
+      char c = Character.toUpperCase(text.charAt(i));
+      if (Character.isWhitespace(c)) {
+        space = passage.length() > 0;
+      } else if (isKey(c)) {
+        if (space) {
+          passage.append(SPACE);
+          space = false;
+        }
+        passage.append(c);
+      }
+    }
+
+    return passage.toString();
+  }
+
+  /**
+   * Returns whether a character is one of KEYBOARD_KEYS, in constant time.
+   *
+   * @param c The character, in upper case.
+   * @return True if it can be typed.
+   */
+  static boolean isKey(char c) {
+    return c < IS_KEY.length && IS_KEY[c];
   }
 
   /**
@@ -313,14 +521,46 @@ public class TypingGame implements KeyListener {
    * Uses SwingUtilities.invokeLater to ensure GUI creation on the Event Dispatch
    * Thread.
    *
-   * @param args Command line arguments (not used).
+   * @param args A text file to play it in passage mode, or
+   *             --dictionary <word file> [min length] [max length].
    */
   public static void main(String[] args) {
+    String passage = null;
+    WordDictionary dictionary = null;
+    if (args.length > 1 && args[0].equals("--dictionary")) {
+      try {
+        dictionary = WordDictionary.open(Path.of(args[1]));
+        if (args.length > 2) {
+          int min = Integer.parseInt(args[2]);
+          dictionary = dictionary.withLengths(min, args.length > 3 ? Integer.parseInt(args[3]) : min);
+        }
+      } catch (IOException e) {
+        System.out.println("Cannot open the dictionary: " + e.getMessage());
+        return;
+      } catch (IllegalArgumentException e) {
+        System.out.println(e.getMessage());
+        return;
+      }
+    } else if (args.length > 0) {
+      try {
+        passage = normalizePassage(Files.readString(Path.of(args[0])));
+      } catch (IOException e) {
+        System.out.println("Cannot read the passage: " + e.getMessage());
+        return;
+      }
+      if (passage.isEmpty()) {
+        System.out.println("The passage has nothing to type.");
+        return;
+      }
+    }
+
     // A safe way to put the GUI on the EDT
+    String text = passage;
+    WordDictionary words = dictionary;
     SwingUtilities.invokeLater(new Runnable() {
       @Override
       public void run() {
-        new TypingGame();
+        new TypingGame(true, text, words);
       }
     });
   }
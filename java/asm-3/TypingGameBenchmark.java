@@ -0,0 +1,155 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Drives synthetic keystrokes through TypingGame without a window.
+ *
+ * First compares the key lookup alone: the former list scan plus String map
+ * lookups against the table indexed by char, with the bytes allocated per
+ * keystroke. Then plays whole games through handleKeyPressed(): mostly
+ * the expected key, sometimes a wrong key or a key that is not on the
+ * keyboard. Last, types passages of growing length, against the former
+ * progress tracking that cut the typed character off the word.
+ *
+ * Run with -Djava.awt.headless=true.
+ */
+public class TypingGameBenchmark {
+  /**
+   * Entry point
+   *
+   * @param args [keystrokes]
+   */
+  public static void main(String[] args) {
+    int keystrokes = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+    SplittableRandom random = new SplittableRandom(42);
+
+    // Synthetic keystrokes: keys, lower-case letters and other characters
+    char[] inputs = new char[1 << 16];
+    for (int i = 0; i < inputs.length; i++) {
+      int r = random.nextInt(10);
+      if (r < 8) {
+        inputs[i] = TypingGame.KEYBOARD_KEYS[random.nextInt(TypingGame.KEYBOARD_KEYS.length)].charAt(0);
+      } else {
+        inputs[i] = (char) (r == 8 ? 'a' + random.nextInt(26) : 0x20 + random.nextInt(0x3000));
+      }
+    }
+
+    // The former lookup, and the table the game uses now
+    Map<String, Object> keyMap = new HashMap<>();
+    Object[] keyTable = new Object[128];
+    for (String key : TypingGame.KEYBOARD_KEYS) {
+      keyMap.put(key, key);
+      keyTable[key.charAt(0)] = key;
+    }
+
+    for (int run = 0; run < 3; run++) {
+      long found = 0;
+      long bytes = allocatedBytes();
+      long start = System.nanoTime();
+      for (int i = 0; i < keystrokes; i++) {
+        char c = inputs[i & (inputs.length - 1)];
+        if (Arrays.asList(TypingGame.KEYBOARD_KEYS).contains(String.valueOf(c)) && keyMap.get(String.valueOf(c)) != null) {
+          found++;
+        }
+      }
+      long listNanos = System.nanoTime() - start;
+      long listBytes = allocatedBytes() - bytes;
+
+      bytes = allocatedBytes();
+      start = System.nanoTime();
+      for (int i = 0; i < keystrokes; i++) {
+        char c = inputs[i & (inputs.length - 1)];
+        if (c < keyTable.length && keyTable[c] != null) {
+          found--;
+        }
+      }
+      long tableNanos = System.nanoTime() - start;
+      long tableBytes = allocatedBytes() - bytes;
+
+      System.out.printf("Lookup: list + map %.1f ns, %.1f B/key; char table %.2f ns, %.1f B/key (%.0fx)%s%n",
+          (double) listNanos / keystrokes, (double) listBytes / keystrokes, (double) tableNanos / keystrokes,
+          (double) tableBytes / keystrokes, (double) listNanos / tableNanos, found == 0 ? "" : " MISMATCH");
+    }
+
+    // Whole games: 90% expected keys, fewer keystrokes since Swing updates the labels on each
+    for (int run = 0; run < 3; run++) {
+      long nanos = 0;
+      long played = 0;
+      long games = 0;
+      while (played < keystrokes / 100) {
+        TypingGame game = new TypingGame(false, null, null);
+        games++;
+        long start = System.nanoTime();
+        while (!game.isGameOver()) {
+          char c = random.nextInt(10) < 9 ? game.expectedKey() : inputs[(int) (played & (inputs.length - 1))];
+          game.handleKeyPressed(c);
+          game.handleKeyReleased(c);
+          played++;
+        }
+        nanos += System.nanoTime() - start;
+      }
+      System.out.printf("Games: %s keystrokes in %s games, %.0f ns per keystroke%n", played, games,
+          (double) nanos / played);
+    }
+
+    typePassages(random);
+  }
+
+  // One passage of about the given length, typed with 95% expected keys
+  private static void typePassages(SplittableRandom random) {
+    for (int length : new int[] { 1_000, 10_000, 100_000 }) {
+      StringBuilder text = new StringBuilder();
+      while (text.length() < length) {
+        int letters = 2 + random.nextInt(8);
+        for (int i = 0; i < letters; i++) {
+          text.append((char) ('a' + random.nextInt(26)));
+        }
+        text.append(random.nextInt(10) == 0 ? ". " : " ");
+      }
+      String passage = TypingGame.normalizePassage(text.toString());
+
+      TypingGame game = new TypingGame(false, passage, null);
+      long played = 0;
+      long start = System.nanoTime();
+      while (!game.isGameOver()) {
+        game.handleKeyPressed(random.nextInt(20) > 0 ? game.expectedKey() : 'Q');
+        played++;
+      }
+      long cursorNanos = System.nanoTime() - start;
+
+      // The former way: the rest of the text copied on every correct key, and on a mistake from the start of the
+      // word (the former code went back to the start of the whole text, which a passage rarely survives)
+      String remaining = passage;
+      String fromWordStart = passage;
+      long copied = 0;
+      long keys = 0;
+      start = System.nanoTime();
+      while (!remaining.isEmpty()) {
+        keys++;
+        if (random.nextInt(20) > 0 || remaining.charAt(0) == 'Q') {
+          char typed = remaining.charAt(0);
+          remaining = remaining.substring(1);
+          copied += remaining.length();
+          if (typed == ' ') {
+            fromWordStart = remaining;
+          }
+        } else {
+          remaining = fromWordStart;
+        }
+      }
+      long substringNanos = System.nanoTime() - start;
+
+      System.out.printf("Passage of %s characters: cursor with display %.0f ns per keystroke; substring copies alone %.0f ns (%s"
+          + " characters copied)%n", passage.length(), (double) cursorNanos / played,
+          (double) substringNanos / keys, copied);
+    }
+  }
+
+  // Bytes allocated so far by this thread
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+  }
+}
@@ -0,0 +1,301 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * A word file of any size, served without loading its words onto the heap.
+ *
+ * The file (one word per line) is memory-mapped, and so is its index: one
+ * long per word, holding its offset in the file and its length, sorted by
+ * length. The words of lengths min to max are then one contiguous range
+ * of the index, so drawing a word, with or without a length filter, is one
+ * random index and one read of a few bytes.
+ *
+ * The index is built once, in two passes over the file (count the words of
+ * each length, then place them), and cached next to it as <file>.idx with
+ * the size and modification time of the file. Later runs only map both
+ * files, so opening costs the same for ten words or ten million. Lines
+ * that cannot be typed on the TypingGame keyboard are left out.
+ *
+ * Reference: https://www.baeldung.com/java-mapped-byte-buffer
+ */
+public class WordDictionary {
+  private final MappedByteBuffer words;
+  private final LongBuffer entries;
+  // bucketStarts[n]: the first entry of the words of length n
+  private final int[] bucketStarts;
+  // The entries of this view: words of lengths minLength to maxLength
+  private final int from;
+  private final int to;
+
+  // Constants: index file format
+  private static final int MAGIC = 0x58444957; // "WIDX"
+  private static final int VERSION = 1;
+  // A length takes the low byte of an entry
+  private static final int MAX_LENGTH = 255;
+  private static final int LENGTH_BITS = 8;
+  private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + (MAX_LENGTH + 2) * 4;
+
+  private WordDictionary(MappedByteBuffer words, LongBuffer entries, int[] bucketStarts, int from, int to) {
+    this.words = words;
+    this.entries = entries;
+    this.bucketStarts = bucketStarts;
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * Opens a word file, with its cached index or a new one.
+   *
+   * @param path The word file.
+   * @return The dictionary of every typeable word.
+   * @throws IOException if the file cannot be read or has no typeable word.
+   */
+  public static WordDictionary open(Path path) throws IOException {
+    MappedByteBuffer words = map(path);
+    Path indexPath = path.resolveSibling(path.getFileName() + ".idx");
+
+    ByteBuffer index = loadIndex(indexPath, path);
+    if (index == null) {
+      buildIndex(words, path, indexPath);
+      index = loadIndex(indexPath, path);
+      if (index == null) {
+        throw new IOException("Cannot index " + path);
+      }
+    }
+
+    int[] bucketStarts = new int[MAX_LENGTH + 2];
+    index.position(HEADER_SIZE - bucketStarts.length * 4);
+    index.asIntBuffer().get(bucketStarts);
+    index.position(HEADER_SIZE);
+    LongBuffer entries = index.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+
+    int count = bucketStarts[MAX_LENGTH + 1];
+    if (count == 0) {
+      throw new IOException(path + " has no word to type");
+    }
+    return new WordDictionary(words, entries, bucketStarts, 0, count);
+  }
+
+  /**
+   * Returns the words of some lengths only. The view shares the mapped files.
+   *
+   * @param minLength The shortest length.
+   * @param maxLength The longest length.
+   * @return The dictionary of those words.
+   * @throws IllegalArgumentException if no word has such a length.
+   */
+  public WordDictionary withLengths(int minLength, int maxLength) {
+    int min = Math.max(1, minLength);
+    int max = Math.min(MAX_LENGTH, maxLength);
+    int start = min <= max ? Math.max(from, bucketStarts[min]) : 0;
+    int end = min <= max ? Math.min(to, bucketStarts[max + 1]) : 0;
+    if (start >= end) {
+      throw new IllegalArgumentException("No word of " + minLength + " to " + maxLength + " letters");
+    }
+    return new WordDictionary(words, entries, bucketStarts, start, end);
+  }
+
+  /**
+   * Returns the number of words.
+   *
+   * @return The number of words of this view.
+   */
+  public int size() {
+    return to - from;
+  }
+
+  /**
+   * Returns a word of this view.
+   *
+   * @param index Between 0 and size() - 1, shorter words first.
+   * @return The word, in upper case.
+   */
+  public String get(int index) {
+    long entry = entries.get(from + index);
+    int length = (int) (entry & MAX_LENGTH);
+    byte[] bytes = new byte[length];
+    words.get((int) (entry >>> LENGTH_BITS), bytes);
+
+    for (int i = 0; i < length; i++) {
+      if (bytes[i] >= 'a' && bytes[i] <= 'z') {
+        bytes[i] -= 'a' - 'A';
+      }
+    }
+    return new String(bytes, StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Draws a word in O(1), every word of the view being equally likely.
+   *
+   * @param random The generator.
+   * @return The word, in upper case.
+   */
+  public String randomWord(RandomGenerator random) {
+    return get(random.nextInt(size()));
+  }
+
+  private static MappedByteBuffer map(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException(path + " is larger than 2 GB");
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  // The mapped index, or null if it is missing or older than the word file
+  private static ByteBuffer loadIndex(Path indexPath, Path path) throws IOException {
+    if (!Files.exists(indexPath)) {
+      return null;
+    }
+
+    ByteBuffer index = map(indexPath).order(ByteOrder.LITTLE_ENDIAN);
+    if (index.capacity() < HEADER_SIZE || index.getInt() != MAGIC || index.getInt() != VERSION
+        || index.getLong() != Files.size(path) || index.getLong() != Files.getLastModifiedTime(path).toMillis()
+        || index.getInt() != MAX_LENGTH) {
+      return null;
+    }
+
+    int count = index.getInt(HEADER_SIZE - 4);
+    if (index.capacity() != HEADER_SIZE + (long) count * Long.BYTES) {
+      return null;
+    }
+    return index;
+  }
+
+  // Two passes: count the words of each length, then write their entries sorted by length
+  private static void buildIndex(MappedByteBuffer words, Path path, Path indexPath) throws IOException {
+    int size = words.capacity();
+
+    int[] counts = new int[MAX_LENGTH + 1];
+    for (int start = 0; start < size;) {
+      int end = lineEnd(words, start, size);
+      int length = wordLength(words, start, end);
+      if (length > 0) {
+        counts[length]++;
+      }
+      start = end + 1;
+    }
+
+    int[] bucketStarts = new int[MAX_LENGTH + 2];
+    for (int length = 1; length <= MAX_LENGTH; length++) {
+      bucketStarts[length + 1] = bucketStarts[length] + counts[length];
+    }
+    int count = bucketStarts[MAX_LENGTH + 1];
+
+    // Written aside, then moved in place, so a crash never leaves half an index
+    Path temporary = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) count * Long.BYTES);
+      index.order(ByteOrder.LITTLE_ENDIAN);
+      index.putInt(MAGIC).putInt(VERSION).putLong(size).putLong(Files.getLastModifiedTime(path).toMillis())
+          .putInt(MAX_LENGTH);
+      for (int bucketStart : bucketStarts) {
+        index.putInt(bucketStart);
+      }
+
+      int[] next = bucketStarts.clone();
+      for (int start = 0; start < size;) {
+        int end = lineEnd(words, start, size);
+        int length = wordLength(words, start, end);
+        if (length > 0) {
+          index.putLong(HEADER_SIZE + next[length]++ * Long.BYTES, ((long) start << LENGTH_BITS) | length);
+        }
+        start = end + 1;
+      }
+      index.force();
+    }
+    Files.move(temporary, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static int lineEnd(MappedByteBuffer words, int start, int size) {
+    int end = start;
+    while (end < size && words.get(end) != '\n') {
+      end++;
+    }
+    return end;
+  }
+
+  // The length of the word of a line, or 0 if it cannot be typed
+  private static int wordLength(MappedByteBuffer words, int start, int end) {
+    if (end > start && words.get(end - 1) == '\r') {
+      end--;
+    }
+    int length = end - start;
+    if (length == 0 || length > MAX_LENGTH) {
+      return 0;
+    }
+
+    for (int i = start; i < end; i++) {
+      char c = (char) Character.toUpperCase(words.get(i) & 0xff);
+      if (c >= 0x80 || !TypingGame.isKey(c)) {
+        return 0;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Entry point: opens a dictionary twice (building, then reusing its
+   * index) and times random draws, with and without a length filter.
+   * Without a file, writes a synthetic one first.
+   *
+   * @param args [word file] [words to generate]
+   */
+  public static void main(String[] args) throws IOException {
+    Path path;
+    if (args.length > 0 && !args[0].matches("\\d+")) {
+      path = Path.of(args[0]);
+    } else {
+      int count = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+      path = Files.createTempFile("words", ".txt");
+      path.toFile().deleteOnExit();
+      path.resolveSibling(path.getFileName() + ".idx").toFile().deleteOnExit();
+
+      SplittableRandom random = new SplittableRandom(42);
+      try (Writer out = Files.newBufferedWriter(path)) {
+        for (int i = 0; i < count; i++) {
+          int length = 1 + random.nextInt(12);
+          for (int j = 0; j < length; j++) {
+            out.write('a' + random.nextInt(26));
+          }
+          out.write('\n');
+        }
+      }
+    }
+
+    for (int run = 0; run < 3; run++) {
+      long start = System.nanoTime();
+      WordDictionary dictionary = open(path);
+      long openNanos = System.nanoTime() - start;
+
+      WordDictionary filtered = dictionary.withLengths(4, 8);
+      SplittableRandom random = new SplittableRandom(run);
+      int draws = 10_000_000;
+      long letters = 0;
+      start = System.nanoTime();
+      for (int i = 0; i < draws; i++) {
+        letters += filtered.randomWord(random).length();
+      }
+      long drawNanos = System.nanoTime() - start;
+
+      System.out.printf("%s words (%.1f MB): opened in %.1f ms%s, %s words of 4-8 letters drawn in %.0f ns each"
+          + " (mean length %.2f), e.g. %s%n", dictionary.size(), Files.size(path) / 1e6, openNanos / 1e6,
+          run == 0 ? " (index built or checked)" : "", filtered.size(), (double) drawNanos / draws,
+          (double) letters / draws, filtered.randomWord(random));
+    }
+  }
+}